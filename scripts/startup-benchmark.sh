@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Measures wall-clock time from JVM launch until /actuator/health reports UP.
+# Uses the AOT/AppCDS artifacts from the fast-startup profile when present, otherwise the executable jar.
+# Requires the docker-compose PostgreSQL and Redis. Results go to target/startup-benchmark.txt.
+set -euo pipefail
+
+RUNS="${RUNS:-5}"
+PORT="${PORT:-8080}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+TARGET_DIR="$(cd "$(dirname "$0")/../target" && pwd)"
+cd "$TARGET_DIR"
+
+if [[ -f classpath.txt ]]; then
+  MODE="aot+cds"
+  JAVA_ARGS=(-Dspring.aot.enabled=true -cp "classes:$(cat classpath.txt)" com.example.payment.PaymentServiceApplication)
+  if [[ -f application.jsa ]]; then
+    JAVA_ARGS=(-XX:SharedArchiveFile=application.jsa "${JAVA_ARGS[@]}")
+  else
+    MODE="aot"
+  fi
+else
+  MODE="jar"
+  JAR="$(ls payment-service-*.jar | head -n 1)"
+  JAVA_ARGS=(-jar "$JAR")
+fi
+
+now_ms() {
+  date +%s%3N
+}
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+  start=$(now_ms)
+  java -Dspring.profiles.active=prod -Dserver.port="$PORT" "${JAVA_ARGS[@]}" > "startup-run-$run.log" 2>&1 &
+  pid=$!
+
+  until curl -sf "http://localhost:$PORT/actuator/health" | grep -q '"status":"UP"'; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "Application exited during run $run, see target/startup-run-$run.log" >&2
+      exit 1
+    fi
+    if (( $(now_ms) - start > TIMEOUT_SECONDS * 1000 )); then
+      kill "$pid"
+      echo "Application not UP after ${TIMEOUT_SECONDS}s in run $run" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+
+  elapsed=$(( $(now_ms) - start ))
+  results+=("$elapsed")
+  echo "run $run: ${elapsed} ms"
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+median="${sorted[$(( ${#sorted[@]} / 2 ))]}"
+summary="mode=$MODE runs=$RUNS min=${sorted[0]}ms median=${median}ms max=${sorted[-1]}ms"
+echo "$summary" | tee startup-benchmark.txt
@@ -0,0 +1,66 @@
+package com.example.payment.benchmark;
+
+import com.example.payment.util.FxRateSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions per second over five years of daily rates. Run with {@code -prof gc} to confirm the
+ * primitive path does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FxConversionBenchmark {
+    private static final String[] CURRENCIES = {"USD", "BRL", "EUR", "GBP", "ARS", "MXN", "CLP", "JPY"};
+    private static final int DAYS = 5 * 365;
+
+    private FxRateSnapshot snapshot;
+    private int[] from;
+    private int[] to;
+    private long[] epochDays;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        FxRateSnapshot.Builder builder = FxRateSnapshot.builder("USD");
+        for (int day = 0; day < DAYS; day++) {
+            for (int c = 1; c < CURRENCIES.length; c++) {
+                builder.rate(start.plusDays(day), CURRENCIES[c], 0.5 + random.nextDouble() * 10);
+            }
+        }
+        snapshot = builder.build();
+
+        from = new int[4096];
+        to = new int[from.length];
+        epochDays = new long[from.length];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = snapshot.indexOf(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+            to[i] = snapshot.indexOf(CURRENCIES[random.nextInt(2)]);
+            epochDays[i] = start.toEpochDay() + random.nextInt(DAYS);
+        }
+    }
+
+    @Benchmark
+    public double convert() {
+        int i = next++ & (from.length - 1);
+        return snapshot.convert(100.0, from[i], to[i], epochDays[i]);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.payment.benchmark;
+
+import com.example.payment.dto.PaymentDTO;
+import com.example.payment.model.PaymentMethod;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.util.PaymentVersion;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-poll CPU cost of GET /api/v1/payments/{id}: the 304 path, which only derives the ETag from
+ * updatedAt and compares it, against serializing the unchanged payment with and without
+ * Blackbird. The database lookups are not included; polls per second per core is the inverse of
+ * the reported time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentPollBenchmark {
+    private PaymentDTO payment;
+    private String ifNoneMatch;
+    private ObjectMapper reflective;
+    private ObjectMapper blackbird;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        payment = new PaymentDTO();
+        payment.setId(UUID.randomUUID());
+        payment.setAmount(new BigDecimal("149.90"));
+        payment.setStatus(PaymentStatus.PROCESSING);
+        payment.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+        payment.setCurrency("BRL");
+        payment.setDescription("Order 12345");
+        payment.setExternalReference("pi_3OqRzk2eZvKYlo2C0XjW1abc");
+        payment.setCreatedAt(now.minusSeconds(5));
+        payment.setUpdatedAt(now);
+        payment.setReportingAmounts(Map.of("USD", new BigDecimal("30.12")));
+        ifNoneMatch = eTag(now);
+
+        reflective = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        blackbird = reflective.copy().registerModule(new BlackbirdModule());
+    }
+
+    @Benchmark
+    public boolean notModified() {
+        return ifNoneMatch.equals(eTag(payment.getUpdatedAt()));
+    }
+
+    @Benchmark
+    public byte[] serializeReflective() throws JsonProcessingException {
+        return reflective.writeValueAsBytes(payment);
+    }
+
+    @Benchmark
+    public byte[] serializeBlackbird() throws JsonProcessingException {
+        return blackbird.writeValueAsBytes(payment);
+    }
+
+    // Same derivation as PaymentController
+    private static String eTag(LocalDateTime updatedAt) {
+        return "\"" + PaymentVersion.format(PaymentVersion.of(updatedAt)) + "\"";
+    }
+}
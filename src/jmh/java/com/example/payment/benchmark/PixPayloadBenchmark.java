@@ -0,0 +1,60 @@
+package com.example.payment.benchmark;
+
+import com.example.payment.util.BrCodeTemplate;
+import com.example.payment.util.QrCodeRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PIX charges per second per thread: the BR Code payload alone, and the payload plus its QR image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PixPayloadBenchmark {
+    private BrCodeTemplate template;
+    private UUID[] paymentIds;
+    private String payload;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        template = new BrCodeTemplate("merchant@example.com", "Loja Exemplo", "Sao Paulo");
+        paymentIds = new UUID[1024];
+        for (int i = 0; i < paymentIds.length; i++) {
+            paymentIds[i] = UUID.randomUUID();
+        }
+        payload = template.payload(12_345, paymentIds[0]);
+    }
+
+    @Benchmark
+    public String payload() {
+        int i = next++ & (paymentIds.length - 1);
+        return template.payload(1_000 + i, paymentIds[i]);
+    }
+
+    @Benchmark
+    public byte[] qrImage() {
+        return QrCodeRenderer.png(payload, 4);
+    }
+
+    @Benchmark
+    public byte[] payloadAndQrImage() {
+        int i = next++ & (paymentIds.length - 1);
+        return QrCodeRenderer.png(template.payload(1_000 + i, paymentIds[i]), 4);
+    }
+}
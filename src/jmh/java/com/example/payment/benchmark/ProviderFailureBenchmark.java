@@ -0,0 +1,69 @@
+package com.example.payment.benchmark;
+
+import com.example.payment.exception.PaymentErrorReporter;
+import com.example.payment.exception.PaymentProcessingException;
+import com.example.payment.model.PaymentMethod;
+import com.example.payment.service.ProviderErrorClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Failures handled per second when every provider call fails: classifying the provider's error,
+ * wrapping it and reporting it once, with the default trace sampling. Logging goes to a file (see
+ * logback-test.xml), as it would in production. The baseline wraps the error the way failures were
+ * handled before, with a captured stack trace logged at ERROR.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ProviderFailureBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(ProviderFailureBenchmark.class);
+
+    private final ProviderErrorClassifier classifier = new ProviderErrorClassifier();
+    private PaymentErrorReporter reporter;
+    // The provider SDK's exception, created once since its cost is outside the service's control
+    private IOException providerError;
+
+    @Setup
+    public void setUp() {
+        reporter = new PaymentErrorReporter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reporter, "stackTraceIntervalMillis", 10_000L);
+        ReflectionTestUtils.setField(reporter, "stackTraceSampleRate", 0.1);
+        providerError = new IOException("Connection reset");
+    }
+
+    @Benchmark
+    public PaymentProcessingException classifiedAndSampled() {
+        PaymentProcessingException failure =
+            classifier.toException(PaymentMethod.PIX, "Payment processing failed", providerError);
+        reporter.report(failure);
+        return failure;
+    }
+
+    @Benchmark
+    public RuntimeException stackTraceBaseline() {
+        RuntimeException failure = new RuntimeException("Payment processing failed: " + providerError.getMessage(), providerError);
+        log.error("Payment processing failed", failure);
+        return failure;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.payment.benchmark;
+
+import com.example.payment.util.SlidingWindowCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one velocity check (increment and sum) when every thread hits the same counter, as the
+ * global amount buckets do, with and without striping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class VelocityCounterBenchmark {
+    private final SlidingWindowCounter shared = new SlidingWindowCounter(60_000, 10, 1);
+    private final SlidingWindowCounter striped = new SlidingWindowCounter(60_000, 10, 8);
+
+    @Benchmark
+    public long shared() {
+        return shared.incrementAndSum(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public long striped() {
+        return striped.incrementAndSum(System.currentTimeMillis());
+    }
+}
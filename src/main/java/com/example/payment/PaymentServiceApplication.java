@@ -1,5 +1,7 @@
 package com.example.payment;
 
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.config.WorkloadContext;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
@@ -10,6 +12,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling
 public class PaymentServiceApplication {
     public static void main(String[] args) {
+        // Startup work such as schema validation and initial loads runs on this thread
+        WorkloadContext.set(WorkloadClass.BACKGROUND);
         SpringApplication.run(PaymentServiceApplication.class, args);
     }
 }
\ No newline at end of file
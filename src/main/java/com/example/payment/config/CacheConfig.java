@@ -0,0 +1,30 @@
+package com.example.payment.config;
+
+import com.example.payment.dto.PaymentDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+    @Value("${payment.cache.ttl:10m}")
+    private Duration paymentCacheTtl;
+
+    @Bean
+    public RedisCacheManagerBuilderCustomizer paymentCacheCustomizer(ObjectMapper objectMapper) {
+        // DTOs are not Serializable, so cache them as JSON using the application's ObjectMapper
+        RedisCacheConfiguration payments = RedisCacheConfiguration.defaultCacheConfig()
+            .entryTtl(paymentCacheTtl)
+            .disableCachingNullValues()
+            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                new Jackson2JsonRedisSerializer<>(objectMapper, PaymentDTO.class)));
+        return builder -> builder.withCacheConfiguration("payments", payments);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.payment.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+    // Replaces reflective getter/setter calls with generated lambdas; Spring Boot registers Module beans automatically
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
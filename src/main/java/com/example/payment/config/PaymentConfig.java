@@ -5,6 +5,7 @@ import com.paypal.core.PayPalHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 
 @Configuration
@@ -25,6 +26,7 @@ public class PaymentConfig {
     private String pixApiKey;
 
     @Bean
+    @Lazy
     public PayPalHttpClient payPalHttpClient() {
         PayPalEnvironment environment = new PayPalEnvironment.Sandbox(paypalClientId, paypalClientSecret);
         return new PayPalHttpClient(environment);
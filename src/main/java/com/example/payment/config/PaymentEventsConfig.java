@@ -0,0 +1,26 @@
+package com.example.payment.config;
+
+import com.example.payment.service.PaymentEventService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+@ConditionalOnProperty(name = "payment.events.redis-enabled", havingValue = "true", matchIfMissing = true)
+public class PaymentEventsConfig {
+    @Value("${payment.events.channel:payment-events}")
+    private String channel;
+
+    @Bean
+    public RedisMessageListenerContainer paymentEventsListenerContainer(
+            RedisConnectionFactory connectionFactory, PaymentEventService paymentEventService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(paymentEventService, new ChannelTopic(channel));
+        return container;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.payment.config;
+
+import com.example.payment.service.PayPalService;
+import com.example.payment.service.PixService;
+import com.example.payment.service.StripeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the lazily initialized provider clients on a background thread once the application
+ * is ready, so readiness is not delayed and the first payment does not pay for their setup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "payment.providers.warmup", havingValue = "true")
+public class ProviderWarmup {
+    private final ObjectProvider<StripeService> stripeService;
+    private final ObjectProvider<PayPalService> payPalService;
+    private final ObjectProvider<PixService> pixService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                stripeService.getObject();
+                payPalService.getObject();
+                pixService.getObject();
+                log.info("Payment providers initialized in {} ms", (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                log.warn("Payment provider warm-up failed; providers will initialize on first use", e);
+            }
+        }, "provider-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.payment.config;
+
+public enum ShardKeyType {
+    USER,
+    // Payments created before sharding have ids without a bucket and are looked up on every shard
+    PAYMENT
+}
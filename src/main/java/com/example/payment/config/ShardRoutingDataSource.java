@@ -0,0 +1,35 @@
+package com.example.payment.config;
+
+import com.example.payment.util.ShardContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Routes to one connection pool per shard and workload class. It sits behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the pool is
+ * chosen at the first statement, once the transaction's read-only flag is known.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    public record PoolKey(int shard, WorkloadClass workload) {
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.currentShard();
+        return new PoolKey(shard == null ? 0 : shard,
+            WorkloadContext.pool(TransactionSynchronizationManager.isCurrentTransactionReadOnly()));
+    }
+
+    /**
+     * One pool per shard, for work such as migrations that needs each database once.
+     */
+    public Map<Integer, DataSource> shardDataSources() {
+        return getResolvedDataSources().entrySet().stream()
+            .filter(entry -> ((PoolKey) entry.getKey()).workload() == WorkloadClass.BACKGROUND)
+            .collect(Collectors.toMap(entry -> ((PoolKey) entry.getKey()).shard(), Map.Entry::getValue));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.payment.config;
+
+import com.example.payment.repository.PaymentRepository;
+import com.example.payment.service.ShardRouter;
+import jakarta.persistence.EntityNotFoundException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.util.UUID;
+
+public class ShardRoutingInterceptor implements MethodInterceptor {
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final ObjectProvider<PaymentRepository> paymentRepository;
+
+    public ShardRoutingInterceptor(
+            ObjectProvider<ShardRouter> shardRouter,
+            ObjectProvider<PaymentRepository> paymentRepository) {
+        this.shardRouter = shardRouter;
+        this.paymentRepository = paymentRepository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Sharded sharded = AnnotatedElementUtils.findMergedAnnotation(invocation.getMethod(), Sharded.class);
+        UUID key = sharded == null ? null : key(invocation.getArguments());
+        if (key == null) {
+            // Nothing to route on; the method reports the bad key itself
+            return invocation.proceed();
+        }
+
+        ShardRouter router = shardRouter.getObject();
+        try {
+            return route(router, sharded.value(), key, invocation);
+        } catch (InvocationFailure failure) {
+            throw failure.getCause();
+        }
+    }
+
+    private Object route(ShardRouter router, ShardKeyType keyType, UUID key, MethodInvocation invocation) {
+        try {
+            return router.onUser(key, () -> proceed(invocation));
+        } catch (EntityNotFoundException e) {
+            if (keyType != ShardKeyType.PAYMENT || router.shardCount() == 1) {
+                throw e;
+            }
+            // A payment created before sharding lives with its user; the retry needs a fresh copy
+            // of the invocation to run the advice chain again
+            return router.onOwner(() -> paymentRepository.getObject().findUserIdById(key),
+                () -> proceed(((ProxyMethodInvocation) invocation).invocableClone()), e);
+        }
+    }
+
+    private static UUID key(Object[] arguments) {
+        if (arguments.length == 0) {
+            return null;
+        }
+        if (arguments[0] instanceof UUID id) {
+            return id;
+        }
+        if (arguments[0] instanceof String value) {
+            try {
+                return UUID.fromString(value);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Object proceed(MethodInvocation invocation) {
+        try {
+            return invocation.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationFailure(t);
+        }
+    }
+
+    // Carries checked exceptions through the Supplier-based router
+    private static final class InvocationFailure extends RuntimeException {
+        private InvocationFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+}
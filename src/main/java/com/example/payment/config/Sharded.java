@@ -0,0 +1,17 @@
+package com.example.payment.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Routes the annotated method to the shard owning its first argument, a user or payment id given
+ * as a {@link java.util.UUID} or its string form. Routing happens outside any transaction or
+ * cache advice on the same method.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Sharded {
+    ShardKeyType value();
+}
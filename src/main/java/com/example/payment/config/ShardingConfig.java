@@ -0,0 +1,112 @@
+package com.example.payment.config;
+
+import com.example.payment.repository.PaymentRepository;
+import com.example.payment.service.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Every JPA and JDBC access goes through one routing DataSource that picks the shard from
+ * {@link com.example.payment.util.ShardContext} and the pool from the workload class, see
+ * {@link WorkloadContext}. With no extra shards configured it routes everything to pools on
+ * {@code spring.datasource}.
+ */
+@Configuration
+@EnableConfigurationProperties({ShardingProperties.class, WorkloadProperties.class})
+public class ShardingConfig {
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            DataSourceProperties primary,
+            ShardingProperties sharding,
+            WorkloadProperties workloads,
+            MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+        Map<Object, Object> pools = new HashMap<>();
+        for (int shard = 0; shard < sharding.shardCount(); shard++) {
+            for (WorkloadClass workload : WorkloadClass.values()) {
+                HikariDataSource pool = shard == 0
+                    ? primary.initializeDataSourceBuilder().type(HikariDataSource.class).build()
+                    : shardDataSource(sharding.shards().get(shard - 1));
+                pool.setPoolName("shard-" + shard + "-" + workload.name().toLowerCase().replace('_', '-'));
+                pool.setMaximumPoolSize(workloads.limits(workload).poolSize());
+                // Publishes hikaricp.connections.* per pool, so saturation shows per shard and workload
+                pool.setMetricsTrackerFactory(metrics);
+                pools.put(new ShardRoutingDataSource.PoolKey(shard, workload), pool);
+            }
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(pools);
+        routing.setDefaultTargetDataSource(pools.get(new ShardRoutingDataSource.PoolKey(0, WorkloadClass.BACKGROUND)));
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    // Defers choosing a pool to the first statement, when the transaction's read-only flag is set
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(shardRoutingDataSource);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+
+    // Every shard carries the full schema, so each one is migrated with the same configuration
+    @Bean
+    public FlywayMigrationStrategy shardedMigration(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> shardRoutingDataSource.shardDataSources().values().forEach(shard ->
+            Flyway.configure()
+                .configuration(flyway.getConfiguration())
+                .dataSource(shard)
+                .load()
+                .migrate());
+    }
+
+    // Ordered ahead of the transaction and cache advisors so the shard is chosen before a connection is bound
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor shardRoutingAdvisor(
+            ObjectProvider<ShardRouter> shardRouter,
+            ObjectProvider<PaymentRepository> paymentRepository) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+            AnnotationMatchingPointcut.forMethodAnnotation(Sharded.class),
+            new ShardRoutingInterceptor(shardRouter, paymentRepository));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    private static HikariDataSource shardDataSource(ShardingProperties.Shard shard) {
+        return DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(shard.url())
+            .username(shard.username())
+            .password(shard.password())
+            .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.payment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Shard 0 is {@code spring.datasource}; {@code shards} lists the additional databases, which
+ * become shards 1..N in order.
+ */
+@ConfigurationProperties(prefix = "payment.sharding")
+public record ShardingProperties(
+    List<Shard> shards,
+    Duration directoryRefresh,
+    int scatterThreads
+) {
+    public record Shard(String url, String username, String password) {
+    }
+
+    public ShardingProperties {
+        shards = shards == null ? List.of() : List.copyOf(shards);
+        directoryRefresh = directoryRefresh == null ? Duration.ofSeconds(5) : directoryRefresh;
+        scatterThreads = scatterThreads <= 0 ? 8 : scatterThreads;
+    }
+
+    public int shardCount() {
+        return shards.size() + 1;
+    }
+}
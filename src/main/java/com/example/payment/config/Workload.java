@@ -0,0 +1,16 @@
+package com.example.payment.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns a controller or handler method to a workload class. Handlers without it are
+ * {@link WorkloadClass#API_READ} for GET and HEAD and {@link WorkloadClass#API_WRITE} otherwise.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Workload {
+    WorkloadClass value();
+}
@@ -0,0 +1,57 @@
+package com.example.payment.config;
+
+import com.example.payment.service.WorkloadAdmissionService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Applies admission control to handler requests, using the class chosen by
+ * {@link WorkloadClassificationFilter}.
+ */
+public class WorkloadAdmissionInterceptor implements AsyncHandlerInterceptor {
+    private static final String ADMITTED = WorkloadAdmissionInterceptor.class.getName() + ".ADMITTED";
+
+    private final WorkloadAdmissionService admissionService;
+
+    public WorkloadAdmissionInterceptor(WorkloadAdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The async re-dispatch only writes the result; the request was admitted on its first dispatch
+        if (!(handler instanceof HandlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        WorkloadClass workload = WorkloadContext.current();
+        admissionService.admit(workload);
+        request.setAttribute(ADMITTED, new AtomicReference<>(workload));
+        return true;
+    }
+
+    // Streams and async responses give their request thread back here, so they stop counting too
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    // Both callbacks can run for one request, on different threads; only the first releases
+    @SuppressWarnings("unchecked")
+    private void release(HttpServletRequest request) {
+        AtomicReference<WorkloadClass> admitted = (AtomicReference<WorkloadClass>) request.getAttribute(ADMITTED);
+        WorkloadClass workload = admitted == null ? null : admitted.getAndSet(null);
+        if (workload != null) {
+            admissionService.release(workload);
+        }
+    }
+}
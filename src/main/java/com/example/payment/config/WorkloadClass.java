@@ -0,0 +1,12 @@
+package com.example.payment.config;
+
+/**
+ * Traffic classes that get their own connection pools and request admission limits.
+ */
+public enum WorkloadClass {
+    API_WRITE,
+    API_READ,
+    WEBHOOK,
+    // Scheduled jobs, workers and anything else running outside a request
+    BACKGROUND
+}
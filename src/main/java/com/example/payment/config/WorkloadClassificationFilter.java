@@ -0,0 +1,99 @@
+package com.example.payment.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.io.IOException;
+
+/**
+ * Classifies every request before Spring Security runs, so the user lookup behind a bearer token
+ * already borrows from the request's own connection pool. Async and error dispatches continue
+ * with the class chosen on the first dispatch.
+ */
+public class WorkloadClassificationFilter extends OncePerRequestFilter {
+    static final String WORKLOAD = WorkloadClassificationFilter.class.getName() + ".WORKLOAD";
+
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+
+    public WorkloadClassificationFilter(ObjectProvider<RequestMappingHandlerMapping> handlerMapping) {
+        this.handlerMapping = handlerMapping;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilterErrorDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        WorkloadClass workload = (WorkloadClass) request.getAttribute(WORKLOAD);
+        if (workload == null) {
+            workload = classify(request);
+            request.setAttribute(WORKLOAD, workload);
+        }
+        WorkloadClass previous = WorkloadContext.current();
+        WorkloadContext.set(workload);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            WorkloadContext.set(previous);
+        }
+    }
+
+    private WorkloadClass classify(HttpServletRequest request) {
+        HandlerMethod handler = findHandler(request);
+        if (handler != null) {
+            Workload workload = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(), Workload.class);
+            if (workload == null) {
+                workload = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), Workload.class);
+            }
+            if (workload != null) {
+                return workload.value();
+            }
+        }
+        String httpMethod = request.getMethod();
+        return "GET".equals(httpMethod) || "HEAD".equals(httpMethod) ? WorkloadClass.API_READ : WorkloadClass.API_WRITE;
+    }
+
+    // The same lookup the dispatcher does later; the parsed path is left as the dispatcher expects to find it
+    private HandlerMethod findHandler(HttpServletRequest request) {
+        RequestMappingHandlerMapping mapping = handlerMapping.getIfAvailable();
+        if (mapping == null) {
+            return null;
+        }
+        boolean parsed = ServletRequestPathUtils.hasParsedRequestPath(request);
+        try {
+            if (!parsed) {
+                ServletRequestPathUtils.parseAndCache(request);
+            }
+            HandlerExecutionChain chain = mapping.getHandler(request);
+            return chain != null && chain.getHandler() instanceof HandlerMethod method ? method : null;
+        } catch (Exception e) {
+            // Requests no handler accepts are answered by the dispatcher; they are classified by method
+            return null;
+        } finally {
+            if (!parsed) {
+                ServletRequestPathUtils.clearParsedRequestPath(request);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.payment.config;
+
+import com.example.payment.service.WorkloadAdmissionService;
+import jakarta.servlet.DispatcherType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+@Configuration
+@RequiredArgsConstructor
+public class WorkloadConfig implements WebMvcConfigurer {
+    private final WorkloadAdmissionService workloadAdmissionService;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new WorkloadAdmissionInterceptor(workloadAdmissionService));
+    }
+
+    // Runs ahead of the security filter chain, whose bearer token check already reads the database
+    @Bean
+    public FilterRegistrationBean<WorkloadClassificationFilter> workloadClassificationFilter(
+            @Qualifier("requestMappingHandlerMapping") ObjectProvider<RequestMappingHandlerMapping> handlerMapping) {
+        FilterRegistrationBean<WorkloadClassificationFilter> registration =
+            new FilterRegistrationBean<>(new WorkloadClassificationFilter(handlerMapping));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC, DispatcherType.ERROR);
+        return registration;
+    }
+
+    @Bean
+    public ThreadPoolTaskSchedulerCustomizer backgroundSchedulerThreads() {
+        return scheduler -> scheduler.setThreadFactory(WorkloadContext.backgroundThreads(scheduler.getThreadNamePrefix()));
+    }
+
+    // Tasks submitted to applicationTaskExecutor from a request keep its pools. Continuations chained
+    // on another pool's future are submitted from that pool's thread, so they restore the class themselves.
+    @Bean
+    public TaskDecorator workloadTaskDecorator() {
+        return task -> {
+            WorkloadClass workload = WorkloadContext.current();
+            return () -> {
+                WorkloadClass previous = WorkloadContext.current();
+                WorkloadContext.set(workload);
+                try {
+                    task.run();
+                } finally {
+                    WorkloadContext.set(previous);
+                }
+            };
+        };
+    }
+}
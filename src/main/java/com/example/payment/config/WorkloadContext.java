@@ -0,0 +1,76 @@
+package com.example.payment.config;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * The workload class of the work running on the current thread. Requests are classified by
+ * {@link WorkloadClassificationFilter}; threads outside a request declare theirs, usually by
+ * being created through {@link #backgroundThreads}.
+ */
+public final class WorkloadContext {
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    public static WorkloadClass current() {
+        return CURRENT.get();
+    }
+
+    public static void set(WorkloadClass workload) {
+        if (workload == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(workload);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs {@code work} as {@code workload}, e.g. on a pool thread that continues a request.
+     */
+    public static <T> T callAs(WorkloadClass workload, Supplier<T> work) {
+        WorkloadClass previous = CURRENT.get();
+        set(workload);
+        try {
+            return work.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * Creates threads that run as {@link WorkloadClass#BACKGROUND} for their whole life, for
+     * executors owned by scheduled jobs and workers.
+     */
+    public static ThreadFactory backgroundThreads(String namePrefix) {
+        CustomizableThreadFactory threads = new CustomizableThreadFactory(namePrefix);
+        return task -> threads.newThread(() -> {
+            set(WorkloadClass.BACKGROUND);
+            task.run();
+        });
+    }
+
+    /**
+     * Chooses the connection pool. API work follows the transaction rather than the HTTP method,
+     * so a read-only transaction uses the read pool and anything else uses the write pool.
+     * Unclassified work is refused instead of being put in any pool, so a request that lost its
+     * class cannot quietly take connections from another one.
+     */
+    public static WorkloadClass pool(boolean readOnlyTransaction) {
+        WorkloadClass workload = CURRENT.get();
+        if (workload == null) {
+            throw new IllegalStateException("No workload class on thread " + Thread.currentThread().getName());
+        }
+        if (workload == WorkloadClass.API_READ || workload == WorkloadClass.API_WRITE) {
+            return readOnlyTransaction ? WorkloadClass.API_READ : WorkloadClass.API_WRITE;
+        }
+        return workload;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.payment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-class limits. {@code poolSize} is the connection pool size on every shard,
+ * {@code maxConcurrent} caps in-flight requests of the class, and {@code shedAbove} is the share
+ * of all request threads in use beyond which the class is turned away, so lower-priority classes
+ * get lower thresholds and are shed first.
+ */
+@ConfigurationProperties(prefix = "payment.workloads")
+public record WorkloadProperties(Map<WorkloadClass, Limits> classes) {
+    private static final Limits DEFAULT_LIMITS = new Limits(10, 50, 1.0);
+
+    public record Limits(int poolSize, int maxConcurrent, double shedAbove) {
+    }
+
+    public WorkloadProperties {
+        Map<WorkloadClass, Limits> all = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            all.put(workload, classes != null && classes.containsKey(workload) ? classes.get(workload) : DEFAULT_LIMITS);
+        }
+        classes = Map.copyOf(all);
+    }
+
+    public Limits limits(WorkloadClass workload) {
+        return classes.get(workload);
+    }
+}
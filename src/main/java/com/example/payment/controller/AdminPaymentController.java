@@ -0,0 +1,29 @@
+package com.example.payment.controller;
+
+import com.example.payment.dto.PaymentDTO;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.service.PaymentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/payments")
+@RequiredArgsConstructor
+@Tag(name = "Payment administration", description = "Cross-user payment queries")
+public class AdminPaymentController {
+    private final PaymentService paymentService;
+
+    @GetMapping
+    @Operation(summary = "Get all payments with a status, across every shard")
+    public ResponseEntity<List<PaymentDTO>> getPaymentsByStatus(@RequestParam PaymentStatus status) {
+        return ResponseEntity.ok(paymentService.getPaymentsByStatus(status));
+    }
+}
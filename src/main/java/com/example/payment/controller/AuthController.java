@@ -0,0 +1,50 @@
+package com.example.payment.controller;
+
+import com.example.payment.dto.AuthResponse;
+import com.example.payment.dto.CreateUserRequest;
+import com.example.payment.dto.LoginRequest;
+import com.example.payment.dto.RefreshTokenRequest;
+import com.example.payment.service.AuthService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/v1/auth")
+@RequiredArgsConstructor
+@Tag(name = "Authentication", description = "Signup, login and token refresh endpoints")
+public class AuthController {
+    private final AuthService authService;
+
+    @PostMapping("/register")
+    @Operation(summary = "Register a new user")
+    public CompletableFuture<ResponseEntity<AuthResponse>> register(@Valid @RequestBody CreateUserRequest request) {
+        return authService.register(request)
+            .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+    }
+
+    @PostMapping("/login")
+    @Operation(summary = "Exchange email and password for access and refresh tokens")
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
+        return authService.login(request).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Rotate a refresh token and issue a new access token")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Revoke a refresh token")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest request) {
+        authService.logout(request);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.payment.controller;
+
+import com.example.payment.config.Workload;
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.dto.ExportFilter;
+import com.example.payment.dto.FileFormat;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/exports")
+@RequiredArgsConstructor
+@Tag(name = "Export", description = "Bulk data export endpoints")
+@Workload(WorkloadClass.BACKGROUND)
+public class ExportController {
+    private final ExportService exportService;
+
+    @GetMapping("/payments")
+    @Operation(summary = "Stream payments as CSV or NDJSON")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(defaultValue = "CSV") FileFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) PaymentStatus status) {
+        ExportFilter filter = new ExportFilter(from, to, status);
+        return stream("payments", format, gzip, out -> exportService.exportPayments(filter, format, gzip, out));
+    }
+
+    @GetMapping("/users")
+    @Operation(summary = "Stream users as CSV or NDJSON")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "CSV") FileFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ExportFilter filter = new ExportFilter(from, to, null);
+        return stream("users", format, gzip, out -> exportService.exportUsers(filter, format, gzip, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(
+            String name, FileFormat format, boolean gzip, StreamingResponseBody body) {
+        String fileName = name + ExportService.extension(format, gzip);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(ExportService.contentType(format, gzip)))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .body(body);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.payment.controller;
+
+import com.example.payment.config.Workload;
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.dto.ImportJobDTO;
+import com.example.payment.dto.StartImportRequest;
+import com.example.payment.service.ImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/imports")
+@RequiredArgsConstructor
+@Tag(name = "Import", description = "Historical payment import endpoints")
+@Workload(WorkloadClass.BACKGROUND)
+public class ImportController {
+    private final ImportService importService;
+
+    @PostMapping
+    @Operation(summary = "Start importing a payment file from the import directory")
+    public ResponseEntity<ImportJobDTO> startImport(@Valid @RequestBody StartImportRequest request) {
+        return ResponseEntity.accepted().body(importService.startImport(request));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get import progress")
+    public ResponseEntity<ImportJobDTO> getImport(@PathVariable UUID id) {
+        return ResponseEntity.ok(importService.getImport(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    @Operation(summary = "Resume a failed or interrupted import from its last committed row")
+    public ResponseEntity<ImportJobDTO> resumeImport(@PathVariable UUID id) {
+        return ResponseEntity.accepted().body(importService.resumeImport(id));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.payment.controller;
+
+import com.example.payment.config.Workload;
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.dto.BalanceDTO;
+import com.example.payment.dto.LedgerCheckReport;
+import com.example.payment.service.LedgerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Ledger", description = "Per-user balance endpoints")
+public class LedgerController {
+    private final LedgerService ledgerService;
+
+    @GetMapping("/ledger/balance")
+    @Operation(summary = "Pending, captured and refunded totals of the current user, per currency")
+    public ResponseEntity<List<BalanceDTO>> getMyBalance(@AuthenticationPrincipal UserDetails userDetails) {
+        UUID userId = UUID.fromString(userDetails.getUsername());
+        return ResponseEntity.ok(ledgerService.getBalances(userId));
+    }
+
+    @GetMapping("/admin/ledger/users/{userId}/balance")
+    @Operation(summary = "Pending, captured and refunded totals of a user, per currency")
+    public ResponseEntity<List<BalanceDTO>> getUserBalance(@PathVariable UUID userId) {
+        return ResponseEntity.ok(ledgerService.getBalances(userId));
+    }
+
+    @PostMapping("/admin/ledger/check")
+    @Workload(WorkloadClass.BACKGROUND)
+    @Operation(summary = "Re-derive all balances from ledger entries and report differences")
+    public ResponseEntity<LedgerCheckReport> check() {
+        return ResponseEntity.ok(ledgerService.check());
+    }
+}
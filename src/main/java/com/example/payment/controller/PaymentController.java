@@ -1,17 +1,35 @@
 package com.example.payment.controller;
 
+import com.example.payment.config.Workload;
+import com.example.payment.config.WorkloadClass;
 import com.example.payment.dto.CreatePaymentRequest;
 import com.example.payment.dto.PaymentDTO;
+import com.example.payment.dto.PaymentStatusHistoryDTO;
+import com.example.payment.jfr.StageEvent;
+import com.example.payment.service.PaymentEventService;
+import com.example.payment.service.PayPalService;
 import com.example.payment.service.PaymentService;
+import com.example.payment.service.PixService;
+import com.example.payment.service.StripeService;
+import com.example.payment.util.PaymentVersion;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,7 +38,16 @@ import java.util.UUID;
 @RequiredArgsConstructor
 @Tag(name = "Payment", description = "Payment management endpoints")
 public class PaymentController {
+    private static final String ROLE_ADMIN = "ROLE_ADMIN";
+
     private final PaymentService paymentService;
+    private final PaymentEventService paymentEventService;
+    @Lazy
+    private final StripeService stripeService;
+    @Lazy
+    private final PayPalService payPalService;
+    @Lazy
+    private final PixService pixService;
 
     @PostMapping
     @Operation(summary = "Create a new payment")
@@ -28,15 +55,48 @@ public class PaymentController {
             @AuthenticationPrincipal UserDetails userDetails,
             @Valid @RequestBody CreatePaymentRequest request) {
         UUID userId = UUID.fromString(userDetails.getUsername());
-        PaymentDTO payment = paymentService.createPayment(userId, request);
+        // Spans routing and the commit as well as the service method
+        StageEvent event = StageEvent.start(StageEvent.CREATE, "total");
+        PaymentDTO payment;
+        try {
+            payment = paymentService.createPayment(userId, request);
+        } catch (RuntimeException e) {
+            event.failed(null, request.getPaymentMethod(), e);
+            throw e;
+        }
+        event.succeeded(payment.getId(), payment.getPaymentMethod());
         return ResponseEntity.ok(payment);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get payment by ID")
-    public ResponseEntity<PaymentDTO> getPayment(@PathVariable UUID id) {
+    public ResponseEntity<PaymentDTO> getPayment(@PathVariable UUID id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(eTag(paymentService.getPaymentUpdatedAt(id)))) {
+            return null;
+        }
         PaymentDTO payment = paymentService.getPayment(id);
-        return ResponseEntity.ok(payment);
+        return ResponseEntity.ok()
+            .eTag(eTag(payment.getUpdatedAt()))
+            .body(payment);
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream status changes of a payment as Server-Sent Events")
+    public SseEmitter streamPaymentEvents(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable UUID id,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        requireOwnerOrAdmin(userDetails, id);
+        return paymentEventService.subscribeToPayment(id, lastEventId);
+    }
+
+    @GetMapping(value = "/user/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream status changes of the authenticated user's payments as Server-Sent Events")
+    public SseEmitter streamUserPaymentEvents(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        UUID userId = UUID.fromString(userDetails.getUsername());
+        return paymentEventService.subscribeToUser(userId, lastEventId);
     }
 
     @GetMapping("/user")
@@ -48,24 +108,69 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    @GetMapping("/{id}/history")
+    @Operation(summary = "Get the status transitions of a payment")
+    public ResponseEntity<List<PaymentStatusHistoryDTO>> getPaymentHistory(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable UUID id) {
+        requireOwnerOrAdmin(userDetails, id);
+        return ResponseEntity.ok(paymentService.getPaymentHistory(id));
+    }
+
+    @GetMapping(value = "/{id}/pix/qr", produces = MediaType.IMAGE_PNG_VALUE)
+    @Operation(summary = "Get the QR code of a PIX payment")
+    public ResponseEntity<byte[]> getPixQrCode(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable UUID id) {
+        requireOwnerOrAdmin(userDetails, id);
+        String pixCode = paymentService.getPayment(id).getPixCode();
+        if (pixCode == null) {
+            throw new EntityNotFoundException("Payment has no PIX code");
+        }
+        // The code of a payment never changes, so clients and proxies may keep the image
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+            .body(pixService.renderQrCode(pixCode));
+    }
+
     @PostMapping("/{id}/refund")
     @Operation(summary = "Refund a payment")
     public ResponseEntity<PaymentDTO> refundPayment(@PathVariable UUID id) {
-        PaymentDTO payment = paymentService.refundPayment(id);
+        PaymentDTO payment = StageEvent.record(StageEvent.REFUND, "total", id, null, () -> paymentService.refundPayment(id));
         return ResponseEntity.ok(payment);
     }
 
     @PostMapping("/webhook")
+    @Workload(WorkloadClass.WEBHOOK)
     @Operation(summary = "Handle payment provider webhooks")
     public ResponseEntity<Void> handleWebhook(
             @RequestHeader("X-Payment-Provider") String provider,
             @RequestBody String payload) {
-        switch (provider.toLowerCase()) {
-            case "stripe" -> stripeService.handleWebhook(payload);
-            case "paypal" -> payPalService.handleWebhook(payload);
-            case "pix" -> pixService.handleWebhook(payload);
-            default -> throw new IllegalArgumentException("Unknown payment provider: " + provider);
+        StageEvent event = StageEvent.start(StageEvent.WEBHOOK, "handle");
+        try {
+            switch (provider.toLowerCase()) {
+                case "stripe" -> stripeService.handleWebhook(payload);
+                case "paypal" -> payPalService.handleWebhook(payload);
+                case "pix" -> pixService.handleWebhook(payload);
+                default -> throw new IllegalArgumentException("Unknown payment provider: " + provider);
+            }
+        } catch (RuntimeException e) {
+            event.failed(null, provider, e);
+            throw e;
         }
+        event.succeeded(null, provider);
         return ResponseEntity.ok().build();
     }
+
+    private void requireOwnerOrAdmin(UserDetails userDetails, UUID paymentId) {
+        boolean admin = userDetails.getAuthorities().stream()
+            .anyMatch(authority -> ROLE_ADMIN.equals(authority.getAuthority()));
+        if (!admin && !paymentService.getPaymentOwner(paymentId).equals(UUID.fromString(userDetails.getUsername()))) {
+            throw new AccessDeniedException("Payment belongs to another user");
+        }
+    }
+
+    private static String eTag(LocalDateTime updatedAt) {
+        return "\"" + PaymentVersion.format(PaymentVersion.of(updatedAt)) + "\"";
+    }
 }
\ No newline at end of file
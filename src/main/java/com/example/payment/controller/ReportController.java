@@ -0,0 +1,37 @@
+package com.example.payment.controller;
+
+import com.example.payment.config.Workload;
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.dto.PaymentTotalsReport;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.service.ReportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/admin/reports")
+@RequiredArgsConstructor
+@Tag(name = "Reports", description = "Finance reporting endpoints")
+@Workload(WorkloadClass.BACKGROUND)
+public class ReportController {
+    private final ReportService reportService;
+
+    @GetMapping("/payments/totals")
+    @Operation(summary = "Total payments in one currency, converted at each day's FX rate")
+    public ResponseEntity<PaymentTotalsReport> getPaymentTotals(
+            @RequestParam(defaultValue = "BRL") String currency,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) PaymentStatus status) {
+        return ResponseEntity.ok(reportService.getPaymentTotals(currency, from, to, status));
+    }
+}
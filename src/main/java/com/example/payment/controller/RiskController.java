@@ -0,0 +1,29 @@
+package com.example.payment.controller;
+
+import com.example.payment.dto.RiskRules;
+import com.example.payment.service.RiskService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/admin/risk")
+@RequiredArgsConstructor
+@Tag(name = "Risk", description = "Payment risk rule administration")
+public class RiskController {
+    private final RiskService riskService;
+
+    @GetMapping("/rules")
+    @Operation(summary = "Get the risk rules currently enforced by this node")
+    public ResponseEntity<RiskRules> getRules() {
+        return ResponseEntity.ok(riskService.getRules());
+    }
+
+    @PostMapping("/rules/reload")
+    @Operation(summary = "Reload risk rules from the configured location")
+    public ResponseEntity<RiskRules> reloadRules() {
+        return ResponseEntity.ok(riskService.reloadRules());
+    }
+}
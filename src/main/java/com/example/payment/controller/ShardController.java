@@ -0,0 +1,32 @@
+package com.example.payment.controller;
+
+import com.example.payment.dto.ShardBucketDTO;
+import com.example.payment.dto.ShardSummaryDTO;
+import com.example.payment.service.ShardRebalanceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/shards")
+@RequiredArgsConstructor
+@Tag(name = "Shards", description = "Shard layout and rebalancing")
+public class ShardController {
+    private final ShardRebalanceService shardRebalanceService;
+
+    @GetMapping
+    @Operation(summary = "List shards with their bucket, user and payment counts")
+    public ResponseEntity<List<ShardSummaryDTO>> getShards() {
+        return ResponseEntity.ok(shardRebalanceService.getShards());
+    }
+
+    @PostMapping("/buckets/{bucket}/move")
+    @Operation(summary = "Move a bucket of users and their payments to another shard")
+    public ResponseEntity<ShardBucketDTO> moveBucket(@PathVariable int bucket, @RequestParam int targetShard) {
+        return ResponseEntity.ok(shardRebalanceService.moveBucket(bucket, targetShard));
+    }
+}
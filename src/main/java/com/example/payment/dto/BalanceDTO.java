@@ -0,0 +1,11 @@
+package com.example.payment.dto;
+
+import java.math.BigDecimal;
+
+public record BalanceDTO(
+    String currency,
+    BigDecimal pending,
+    BigDecimal captured,
+    BigDecimal refunded
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.payment.dto;
+
+import com.example.payment.model.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportFilter {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private PaymentStatus status;
+}
@@ -0,0 +1,6 @@
+package com.example.payment.dto;
+
+public enum FileFormat {
+    CSV,
+    NDJSON
+}
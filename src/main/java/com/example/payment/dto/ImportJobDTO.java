@@ -0,0 +1,23 @@
+package com.example.payment.dto;
+
+import com.example.payment.model.ImportStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+public class ImportJobDTO {
+    private UUID id;
+    private String fileName;
+    private FileFormat format;
+    private ImportStatus status;
+    private long processedRows;
+    private long importedRows;
+    private long failedRows;
+    private String errorFile;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
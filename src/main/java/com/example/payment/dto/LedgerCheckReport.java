@@ -0,0 +1,29 @@
+package com.example.payment.dto;
+
+import com.example.payment.model.LedgerAccount;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public record LedgerCheckReport(
+    int shards,
+    int partitions,
+    // Balances that differ from the sum of their entries
+    List<Mismatch> mismatches,
+    // Payments whose entries do not sum to zero
+    List<UUID> unbalancedPayments,
+    // Payments whose amount is not in the account of their status, such as ones never posted
+    List<UUID> misplacedPayments,
+    // Each partition reports at most a fixed number of findings
+    boolean truncated
+) {
+    public record Mismatch(
+        UUID userId,
+        LedgerAccount account,
+        String currency,
+        BigDecimal derived,
+        BigDecimal materialized
+    ) {
+    }
+}
@@ -2,10 +2,12 @@ package com.example.payment.dto;
 
 import com.example.payment.model.PaymentMethod;
 import com.example.payment.model.PaymentStatus;
+import com.example.payment.model.RiskDecision;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -18,8 +20,15 @@ public class PaymentDTO {
     private String description;
     private String externalReference;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
     private LocalDateTime paidAt;
     private LocalDateTime canceledAt;
     private LocalDateTime refundedAt;
+    private LocalDateTime expiresAt;
     private String errorMessage;
+    private RiskDecision riskDecision;
+    private String riskReason;
+    private String pixCode;
+    // Amount in each reporting currency at the rate of the day the payment was created
+    private Map<String, BigDecimal> reportingAmounts;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.payment.dto;
+
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.model.StatusChangeSource;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class PaymentStatusHistoryDTO {
+    private PaymentStatus fromStatus;
+    private PaymentStatus toStatus;
+    private String actor;
+    private StatusChangeSource source;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,20 @@
+package com.example.payment.dto;
+
+import com.example.payment.model.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record PaymentTotalsReport(
+    String currency,
+    LocalDateTime from,
+    LocalDateTime to,
+    PaymentStatus status,
+    BigDecimal total,
+    long count,
+    // Source currencies with no rate for some of their days; those payments are left out of the total
+    List<String> unconvertedCurrencies,
+    long unconvertedCount
+) {
+}
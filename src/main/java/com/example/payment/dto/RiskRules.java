@@ -0,0 +1,49 @@
+package com.example.payment.dto;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Velocity limits applied before a payment reaches its provider. Amount buckets are matched in
+ * order against their inclusive {@code upTo} bound; a null bound matches any amount.
+ */
+public record RiskRules(
+    int maxAttemptsPerUser,
+    Duration userWindow,
+    int maxFailureStreak,
+    Duration failureCooldown,
+    List<AmountBucket> amountBuckets
+) {
+    public record AmountBucket(
+        BigDecimal upTo,
+        int maxAttemptsPerUser,
+        int maxAttemptsGlobal,
+        Duration window
+    ) {
+    }
+
+    public RiskRules {
+        amountBuckets = amountBuckets == null ? List.of() : List.copyOf(amountBuckets);
+    }
+
+    public int bucketFor(BigDecimal amount) {
+        for (int i = 0; i < amountBuckets.size(); i++) {
+            BigDecimal upTo = amountBuckets.get(i).upTo();
+            if (upTo == null || amount.compareTo(upTo) <= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public Duration longestWindow() {
+        Duration longest = userWindow.compareTo(failureCooldown) >= 0 ? userWindow : failureCooldown;
+        for (AmountBucket bucket : amountBuckets) {
+            if (bucket.window().compareTo(longest) > 0) {
+                longest = bucket.window();
+            }
+        }
+        return longest;
+    }
+}
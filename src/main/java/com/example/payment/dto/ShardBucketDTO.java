@@ -0,0 +1,9 @@
+package com.example.payment.dto;
+
+public record ShardBucketDTO(
+    int bucket,
+    int shard,
+    boolean migrating,
+    long movedUsers
+) {
+}
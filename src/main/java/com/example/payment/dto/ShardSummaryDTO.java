@@ -0,0 +1,9 @@
+package com.example.payment.dto;
+
+public record ShardSummaryDTO(
+    int shard,
+    int buckets,
+    long users,
+    long payments
+) {
+}
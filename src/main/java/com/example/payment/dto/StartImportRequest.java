@@ -0,0 +1,14 @@
+package com.example.payment.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class StartImportRequest {
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @NotNull(message = "Format is required")
+    private FileFormat format;
+}
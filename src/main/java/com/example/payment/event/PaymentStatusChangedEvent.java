@@ -0,0 +1,17 @@
+package com.example.payment.event;
+
+import com.example.payment.dto.PaymentDTO;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.model.StatusChangeSource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record PaymentStatusChangedEvent(
+        UUID userId,
+        PaymentDTO payment,
+        PaymentStatus previousStatus,
+        String actor,
+        StatusChangeSource source,
+        LocalDateTime occurredAt) {
+}
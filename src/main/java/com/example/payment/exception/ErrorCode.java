@@ -0,0 +1,24 @@
+package com.example.payment.exception;
+
+/**
+ * Classification of payment failures. Whether a failure is worth retrying is decided once, when
+ * the error is classified, rather than by whoever catches it.
+ */
+public enum ErrorCode {
+    PROVIDER_UNAVAILABLE(true),
+    PROVIDER_RATE_LIMITED(true),
+    PROVIDER_REJECTED(false),
+    PROVIDER_ERROR(false),
+    RISK_DECLINED(false),
+    PROCESSING_FAILED(false);
+
+    private final boolean retryable;
+
+    ErrorCode(boolean retryable) {
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
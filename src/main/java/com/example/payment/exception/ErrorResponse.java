@@ -17,4 +17,9 @@ public class ErrorResponse {
     private String message;
     private LocalDateTime timestamp;
     private Map<String, String> errors;
+    private String code;
+
+    public ErrorResponse(int status, String message, LocalDateTime timestamp, Map<String, String> errors) {
+        this(status, message, timestamp, errors, null);
+    }
 }
\ No newline at end of file
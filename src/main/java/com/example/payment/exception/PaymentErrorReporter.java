@@ -0,0 +1,87 @@
+package com.example.payment.exception;
+
+import com.example.payment.model.PaymentMethod;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The single place a payment failure is logged. Every failure is counted by error code and
+ * provider and logged as one line. Stack traces are sampled and limited to one per error code
+ * per interval, so an outage does not flood the logs or spend CPU formatting traces.
+ */
+@Slf4j
+@Component
+public class PaymentErrorReporter {
+    // counters[code][provider ordinal + 1]; slot 0 is for failures without a provider
+    private final Map<ErrorCode, Counter[]> counters = new EnumMap<>(ErrorCode.class);
+    private final Map<ErrorCode, AtomicLong> lastStackTraceAt = new EnumMap<>(ErrorCode.class);
+    private final Map<ErrorCode, AtomicLong> sinceStackTrace = new EnumMap<>(ErrorCode.class);
+
+    @Value("${payment.errors.stack-trace-interval:10000}")
+    private long stackTraceIntervalMillis;
+
+    @Value("${payment.errors.stack-trace-sample-rate:0.1}")
+    private double stackTraceSampleRate;
+
+    public PaymentErrorReporter(MeterRegistry meterRegistry) {
+        for (ErrorCode code : ErrorCode.values()) {
+            Counter[] byProvider = new Counter[PaymentMethod.values().length + 1];
+            for (int i = 0; i < byProvider.length; i++) {
+                byProvider[i] = Counter.builder("payment.errors")
+                    .tag("code", code.name())
+                    .tag("provider", i == 0 ? "none" : PaymentMethod.values()[i - 1].name())
+                    .tag("retryable", String.valueOf(code.isRetryable()))
+                    .description("Payment failures by error code")
+                    .register(meterRegistry);
+            }
+            counters.put(code, byProvider);
+            lastStackTraceAt.put(code, new AtomicLong(Long.MIN_VALUE / 2));
+            sinceStackTrace.put(code, new AtomicLong());
+        }
+    }
+
+    public void report(PaymentProcessingException error) {
+        report(error, null);
+    }
+
+    /**
+     * Counts and logs {@code error}; {@code outcome} says what was done about it, e.g. that a retry
+     * was scheduled.
+     */
+    public void report(PaymentProcessingException error, String outcome) {
+        ErrorCode code = error.getErrorCode();
+        PaymentMethod provider = error.getProvider();
+        counters.get(code)[provider == null ? 0 : provider.ordinal() + 1].increment();
+
+        long similar = sinceStackTrace.get(code).incrementAndGet();
+        String suffix = outcome == null ? "" : " (" + outcome + ")";
+        if (claimStackTrace(code)) {
+            sinceStackTrace.get(code).addAndGet(-similar);
+            log.warn("{} from {}: {}{} [{} since last trace]", code, providerName(provider), error.getMessage(), suffix, similar, error);
+        } else {
+            log.warn("{} from {}: {}{}", code, providerName(provider), error.getMessage(), suffix);
+        }
+    }
+
+    private static String providerName(PaymentMethod provider) {
+        return provider == null ? "none" : provider.name();
+    }
+
+    private boolean claimStackTrace(ErrorCode code) {
+        if (ThreadLocalRandom.current().nextDouble() >= stackTraceSampleRate) {
+            return false;
+        }
+        AtomicLong last = lastStackTraceAt.get(code);
+        long now = System.currentTimeMillis();
+        long previous = last.get();
+        return now - previous >= stackTraceIntervalMillis && last.compareAndSet(previous, now);
+    }
+}
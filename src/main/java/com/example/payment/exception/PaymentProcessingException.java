@@ -1,11 +1,42 @@
 package com.example.payment.exception;
 
+import com.example.payment.model.PaymentMethod;
+
+/**
+ * A classified payment failure. These are expected during provider outages, so no stack trace is
+ * captured: where the failure came from is told by the provider and error code, and the
+ * provider's own exception is kept as the cause.
+ */
 public class PaymentProcessingException extends RuntimeException {
+    private final ErrorCode errorCode;
+    private final PaymentMethod provider;
+
     public PaymentProcessingException(String message) {
-        super(message);
+        this(ErrorCode.PROCESSING_FAILED, null, message, null);
     }
 
     public PaymentProcessingException(String message, Throwable cause) {
-        super(message, cause);
+        this(ErrorCode.PROCESSING_FAILED, null, message, cause);
+    }
+
+    public PaymentProcessingException(ErrorCode errorCode, PaymentMethod provider, String message, Throwable cause) {
+        super(message, cause, false, false);
+        this.errorCode = errorCode;
+        this.provider = provider;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * The provider that failed, or {@code null} when the failure happened before any provider call.
+     */
+    public PaymentMethod getProvider() {
+        return provider;
+    }
+
+    public boolean isRetryable() {
+        return errorCode.isRetryable();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.example.payment.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * {@code /actuator/jfr}: starts a bounded Flight Recorder recording with the JDK's profiling
+ * settings plus the {@link StageEvent stage events}, stops it, and downloads it. One recording
+ * is kept at a time; starting a new one discards the previous one.
+ */
+@Slf4j
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+    @Value("${payment.profiling.default-duration:60s}")
+    private Duration defaultDuration;
+
+    @Value("${payment.profiling.max-duration:10m}")
+    private Duration maxDuration;
+
+    @Value("${payment.profiling.max-size:100MB}")
+    private DataSize maxSize;
+
+    private Recording recording;
+
+    @ReadOperation
+    public synchronized WebEndpointResponse<RecordingStatus> status() {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(RecordingStatus.of(recording));
+    }
+
+    /**
+     * Starts recording for {@code durationSeconds}, capped at the configured maximum.
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<RecordingStatus> start(@Nullable Long durationSeconds)
+            throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(RecordingStatus.of(recording), WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        close();
+        Duration duration = durationSeconds == null ? defaultDuration : Duration.ofSeconds(durationSeconds);
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            duration = maxDuration;
+        }
+
+        Recording started = new Recording(Configuration.getConfiguration("profile"));
+        started.setName("payment-service-" + Instant.now());
+        started.enable(StageEvent.class);
+        started.setDuration(duration);
+        started.setMaxSize(maxSize.toBytes());
+        started.setToDisk(true);
+        started.start();
+        recording = started;
+        log.info("Started JFR recording {} for {}", started.getId(), duration);
+        return new WebEndpointResponse<>(RecordingStatus.of(started));
+    }
+
+    @DeleteOperation
+    public synchronized WebEndpointResponse<RecordingStatus> stop() {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return new WebEndpointResponse<>(RecordingStatus.of(recording));
+    }
+
+    /**
+     * Downloads recording {@code id}. A running recording is snapshotted and keeps running.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector long id) throws IOException {
+        if (recording == null || recording.getId() != id) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = Files.createTempFile("payment-service-", ".jfr");
+        try (Recording snapshot = recording.copy(recording.getState() == RecordingState.RUNNING)) {
+            snapshot.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new WebEndpointResponse<>(new TemporaryFileSystemResource(file.toFile()));
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public record RecordingStatus(long id, String name, RecordingState state, Instant startTime, Duration duration, long size) {
+        static RecordingStatus of(Recording recording) {
+            return new RecordingStatus(
+                recording.getId(),
+                recording.getName(),
+                recording.getState(),
+                recording.getStartTime(),
+                recording.getDuration(),
+                recording.getSize());
+        }
+    }
+
+    // Deleted once the response has been written; not reported as a file so it is always read through the stream
+    private static final class TemporaryFileSystemResource extends FileSystemResource {
+        TemporaryFileSystemResource(File file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.payment.jfr;
+
+import com.example.payment.exception.PaymentProcessingException;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Flight Recorder event timing one stage of handling a payment or a request, such as the
+ * provider call in {@code createPayment} or the token check in the JWT filter. With no recording
+ * running, {@link #start} hands out a shared no-op instance, so the cost is a disabled-event check
+ * and nothing is allocated. Fields are only filled in when the event is actually recorded.
+ */
+@Name("com.example.payment.Stage")
+@Label("Payment Service Stage")
+@Category("Payment Service")
+@Description("Time spent in one stage of a payment operation")
+@StackTrace(false)
+public class StageEvent extends Event {
+    public static final String CREATE = "create";
+    public static final String REFUND = "refund";
+    public static final String CONFIRM = "confirm";
+    public static final String WEBHOOK = "webhook";
+    public static final String AUTHENTICATE = "authenticate";
+
+    // Never begun or committed; it stands in for every stage while the event type is disabled
+    private static final StageEvent DISABLED = new StageEvent(null, null);
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Payment Id")
+    String paymentId;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Outcome")
+    @Description("OK, or the error code or exception type of the failure")
+    String outcome;
+
+    private StageEvent(String operation, String stage) {
+        this.operation = operation;
+        this.stage = stage;
+    }
+
+    public static StageEvent start(String operation, String stage) {
+        if (!DISABLED.isEnabled()) {
+            return DISABLED;
+        }
+        StageEvent event = new StageEvent(operation, stage);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Runs {@code work} as one stage, recording a failure as its outcome before rethrowing it.
+     */
+    public static <T> T record(String operation, String stage, UUID paymentId, Object provider, Supplier<T> work) {
+        if (!DISABLED.isEnabled()) {
+            return work.get();
+        }
+        StageEvent event = start(operation, stage);
+        try {
+            T result = work.get();
+            event.succeeded(paymentId, provider);
+            return result;
+        } catch (RuntimeException e) {
+            event.failed(paymentId, provider, e);
+            throw e;
+        }
+    }
+
+    public void succeeded(UUID paymentId, Object provider) {
+        finish(paymentId, provider, null);
+    }
+
+    public void failed(UUID paymentId, Object provider, Throwable error) {
+        finish(paymentId, provider, error);
+    }
+
+    private void finish(UUID paymentId, Object provider, Throwable error) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.paymentId = paymentId == null ? null : paymentId.toString();
+            this.provider = provider == null ? null : provider.toString();
+            if (error == null) {
+                this.outcome = "OK";
+            } else if (error instanceof PaymentProcessingException classified) {
+                this.outcome = classified.getErrorCode().name();
+            } else {
+                this.outcome = error.getClass().getSimpleName();
+            }
+            commit();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.payment.model;
+
+import com.example.payment.dto.FileFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "import_jobs")
+public class ImportJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private FileFormat format;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ImportStatus status;
+
+    // Data rows (excluding the CSV header) whose outcome has been committed; resume skips past these
+    @Column(nullable = false)
+    private long processedRows;
+
+    @Column(nullable = false)
+    private long importedRows;
+
+    @Column(nullable = false)
+    private long failedRows;
+
+    private String errorFile;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
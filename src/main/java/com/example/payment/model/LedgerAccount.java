@@ -0,0 +1,25 @@
+package com.example.payment.model;
+
+/**
+ * The accounts every user has in the ledger, one per currency. A payment's amount sits in the
+ * account matching its status. CLEARING is the other side of every posting: money that has not
+ * entered the system or has left it. A user's accounts therefore always sum to zero.
+ */
+public enum LedgerAccount {
+    PENDING,
+    CAPTURED,
+    REFUNDED,
+    CLEARING;
+
+    public static LedgerAccount holding(PaymentStatus status) {
+        if (status == null) {
+            return CLEARING;
+        }
+        return switch (status) {
+            case PENDING, PROCESSING -> PENDING;
+            case COMPLETED -> CAPTURED;
+            case REFUNDED -> REFUNDED;
+            case FAILED, CANCELED, EXPIRED -> CLEARING;
+        };
+    }
+}
@@ -11,10 +11,12 @@ import java.util.UUID;
 
 @Data
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+    @Index(name = "idx_payments_created_at", columnList = "created_at")
+})
 public class Payment {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @ShardedId
     private UUID id;
 
     @Column(nullable = false)
@@ -51,5 +53,17 @@ public class Payment {
     private LocalDateTime canceledAt;
     private LocalDateTime refundedAt;
 
+    // Set while the payment can still be abandoned; see PaymentExpirationScheduler
+    private LocalDateTime expiresAt;
+
     private String errorMessage;
+
+    @Enumerated(EnumType.STRING)
+    private RiskDecision riskDecision;
+
+    private String riskReason;
+
+    // PIX "copia e cola" payload; the QR code is rendered from it on request
+    @Column(length = 512)
+    private String pixCode;
 }
\ No newline at end of file
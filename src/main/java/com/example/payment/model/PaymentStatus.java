@@ -6,5 +6,6 @@ public enum PaymentStatus {
     COMPLETED,
     FAILED,
     CANCELED,
+    EXPIRED,
     REFUNDED
 }
\ No newline at end of file
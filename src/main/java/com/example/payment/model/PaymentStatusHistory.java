@@ -0,0 +1,42 @@
+package com.example.payment.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Rows are appended in JDBC batches by PaymentHistoryWriter; JPA only reads them
+@Data
+@Entity
+@Immutable
+@Table(name = "payment_status_history")
+public class PaymentStatusHistory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID paymentId;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus fromStatus;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus toStatus;
+
+    @Column(nullable = false)
+    private String actor;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private StatusChangeSource source;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    @Column(nullable = false)
+    private LocalDateTime recordedAt;
+}
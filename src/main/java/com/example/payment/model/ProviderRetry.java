@@ -0,0 +1,57 @@
+package com.example.payment.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "provider_retries", indexes = {
+    @Index(name = "idx_provider_retries_due", columnList = "provider, status, next_attempt_at"),
+    @Index(name = "idx_provider_retries_payment_id", columnList = "payment_id")
+})
+public class ProviderRetry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payment_id", nullable = false)
+    private Payment payment;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private PaymentMethod provider;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RetryOperation operation;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RetryStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Lease on an IN_PROGRESS claim; once it passes, another node may pick the retry up again
+    private LocalDateTime lockedUntil;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.example.payment.model;
+
+public enum RetryStatus {
+    PENDING,
+    IN_PROGRESS,
+    SUCCEEDED,
+    FAILED
+}
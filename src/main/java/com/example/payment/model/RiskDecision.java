@@ -0,0 +1,6 @@
+package com.example.payment.model;
+
+public enum RiskDecision {
+    APPROVED,
+    DECLINED
+}
@@ -0,0 +1,17 @@
+package com.example.payment.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a UUID that carries the entity's shard bucket, see {@link ShardedIdGenerator}.
+ */
+@IdGeneratorType(ShardedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ShardedId {
+}
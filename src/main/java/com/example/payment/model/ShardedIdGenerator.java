@@ -0,0 +1,31 @@
+package com.example.payment.model;
+
+import com.example.payment.util.ShardContext;
+import com.example.payment.util.ShardKeys;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * Payments take the bucket of their user. New users take the bucket the caller routed the
+ * insert to; without one (a single unsharded database) the id is simply random.
+ */
+public class ShardedIdGenerator implements BeforeExecutionGenerator {
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (owner instanceof Payment payment && payment.getUser() != null && payment.getUser().getId() != null) {
+            return ShardKeys.newId(ShardKeys.bucketOf(payment.getUser().getId()));
+        }
+        Integer bucket = ShardContext.currentBucket();
+        return bucket == null ? UUID.randomUUID() : ShardKeys.newId(bucket);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.payment.model;
+
+public enum StatusChangeSource {
+    API,
+    WEBHOOK,
+    RECONCILER
+}
@@ -19,7 +19,7 @@ import java.util.UUID;
 @Table(name = "users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @ShardedId
     private UUID id;
 
     @NotBlank
@@ -0,0 +1,11 @@
+package com.example.payment.repository;
+
+import com.example.payment.model.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, UUID> {
+}
@@ -2,11 +2,18 @@ package com.example.payment.repository;
 
 import com.example.payment.model.Payment;
 import com.example.payment.model.PaymentStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -15,4 +22,50 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     List<Payment> findByStatus(PaymentStatus status);
     List<Payment> findByUserIdAndCreatedAtBetween(UUID userId, LocalDateTime start, LocalDateTime end);
     List<Payment> findByExternalReference(String externalReference);
+
+    @Query("select p.id as id, p.user.id as userId from Payment p where p.externalReference = :externalReference")
+    List<PaymentKey> findKeyByExternalReference(@Param("externalReference") String externalReference);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Payment p where p.id = :id")
+    Optional<Payment> findByIdForUpdate(@Param("id") UUID id);
+
+    // Range scan of idx_payments_expires_at; only deadlines, not whole payments, are loaded
+    @Query("select p.id as id, p.expiresAt as expiresAt from Payment p " +
+        "where p.expiresAt > :after and p.expiresAt <= :until")
+    List<Deadline> findDeadlines(@Param("after") LocalDateTime after, @Param("until") LocalDateTime until);
+
+    @Query("select p.updatedAt from Payment p where p.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") UUID id);
+
+    @Query("select p.user.id from Payment p where p.id = :id")
+    Optional<UUID> findUserIdById(@Param("id") UUID id);
+
+    // One row per currency and day, so FX conversion runs on the aggregates rather than on every payment
+    @Query("select upper(p.currency) as currency, cast(p.createdAt as LocalDate) as createdOn, " +
+        "sum(p.amount) as total, count(p) as payments from Payment p " +
+        "where p.createdAt >= :from and p.createdAt < :to " +
+        "and (:status is null or p.status = :status) " +
+        "group by upper(p.currency), cast(p.createdAt as LocalDate)")
+    List<DailyTotal> sumByCurrencyAndDay(
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("status") PaymentStatus status);
+
+    interface PaymentKey {
+        UUID getId();
+        UUID getUserId();
+    }
+
+    interface Deadline {
+        UUID getId();
+        LocalDateTime getExpiresAt();
+    }
+
+    interface DailyTotal {
+        String getCurrency();
+        LocalDate getCreatedOn();
+        BigDecimal getTotal();
+        long getPayments();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.example.payment.repository;
+
+import com.example.payment.model.PaymentStatusHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PaymentStatusHistoryRepository extends JpaRepository<PaymentStatusHistory, Long> {
+    List<PaymentStatusHistory> findByPaymentIdOrderByOccurredAtAscIdAsc(UUID paymentId);
+}
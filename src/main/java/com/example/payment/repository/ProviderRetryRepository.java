@@ -0,0 +1,43 @@
+package com.example.payment.repository;
+
+import com.example.payment.model.PaymentMethod;
+import com.example.payment.model.ProviderRetry;
+import com.example.payment.model.RetryOperation;
+import com.example.payment.model.RetryStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ProviderRetryRepository extends JpaRepository<ProviderRetry, UUID> {
+    @Query(value = "SELECT * FROM provider_retries " +
+        "WHERE provider = :provider " +
+        "AND ((status = 'PENDING' AND next_attempt_at <= :now) " +
+        "OR (status = 'IN_PROGRESS' AND locked_until <= :now)) " +
+        "ORDER BY next_attempt_at " +
+        "LIMIT :limit " +
+        "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ProviderRetry> findDueForUpdate(
+        @Param("provider") String provider,
+        @Param("now") LocalDateTime now,
+        @Param("limit") int limit);
+
+    boolean existsByPaymentIdAndOperationAndStatusIn(
+        UUID paymentId, RetryOperation operation, Collection<RetryStatus> statuses);
+
+    @Query("select r.provider as provider, count(r) as depth, min(r.createdAt) as oldest " +
+        "from ProviderRetry r where r.status in :statuses group by r.provider")
+    List<QueueSummary> summarize(@Param("statuses") Collection<RetryStatus> statuses);
+
+    interface QueueSummary {
+        PaymentMethod getProvider();
+        long getDepth();
+        LocalDateTime getOldest();
+    }
+}
@@ -2,8 +2,12 @@ package com.example.payment.repository;
 
 import com.example.payment.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +15,12 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Query("select u.id as id, u.email as email from User u where u.email in :emails")
+    List<UserIdentity> findIdentitiesByEmailIn(@Param("emails") Collection<String> emails);
+
+    interface UserIdentity {
+        UUID getId();
+        String getEmail();
+    }
+}
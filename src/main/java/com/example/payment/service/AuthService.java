@@ -0,0 +1,183 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.dto.AuthResponse;
+import com.example.payment.dto.CreateUserRequest;
+import com.example.payment.dto.LoginRequest;
+import com.example.payment.dto.RefreshTokenRequest;
+import com.example.payment.model.RefreshToken;
+import com.example.payment.model.User;
+import com.example.payment.repository.RefreshTokenRepository;
+import com.example.payment.repository.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuthService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String TOKEN_TYPE = "Bearer";
+
+    private final UserRepository userRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserService userService;
+    private final UserEmailRegistry userEmailRegistry;
+    private final JwtService jwtService;
+    private final PasswordHashingService passwordHashingService;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    // Database work after hashing runs here so hashing threads only ever hash
+    private final AsyncTaskExecutor applicationTaskExecutor;
+
+    @Value("${jwt.refresh-expiration}")
+    private long refreshExpiration;
+
+    public CompletableFuture<AuthResponse> register(CreateUserRequest request) {
+        if (shardRouter.anyShard(() -> userRepository.existsByEmail(request.getEmail()))) {
+            throw new IllegalArgumentException("Email already registered");
+        }
+
+        // The continuation is submitted from a hashing thread, which carries no workload class
+        WorkloadClass workload = WorkloadContext.current();
+        return passwordHashingService.encode(request.getPassword())
+            .thenApplyAsync(encodedPassword -> WorkloadContext.callAs(workload, () ->
+                createAccount(request, encodedPassword)), applicationTaskExecutor);
+    }
+
+    // The user lands on a random bucket's shard, so only the claim on shard 0 keeps concurrent
+    // registrations of one email from both succeeding
+    private AuthResponse createAccount(CreateUserRequest request, String encodedPassword) {
+        if (!userEmailRegistry.claim(request.getEmail())) {
+            throw new IllegalArgumentException("Email already registered");
+        }
+        User user;
+        try {
+            user = shardRouter.onNewUser(() -> transactionTemplate.execute(status ->
+                userService.registerUser(request, encodedPassword)));
+        } catch (RuntimeException e) {
+            userEmailRegistry.release(request.getEmail());
+            throw e;
+        }
+        userEmailRegistry.assign(request.getEmail(), user.getId());
+        return shardRouter.onUser(user.getId(), () -> transactionTemplate.execute(status -> issueTokens(user)));
+    }
+
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        Optional<User> user = shardRouter.findFirst(() -> userRepository.findByEmail(request.getEmail()))
+            .filter(User::isEnabled);
+        String encodedPassword = user.map(User::getPassword).orElse(null);
+
+        WorkloadClass workload = WorkloadContext.current();
+        return passwordHashingService.verify(request.getPassword(), encodedPassword)
+            .thenApplyAsync(verification -> {
+                if (!verification.matches()) {
+                    throw new BadCredentialsException("Invalid email or password");
+                }
+                return WorkloadContext.callAs(workload, () ->
+                    shardRouter.onUser(user.get().getId(), () -> transactionTemplate.execute(status -> {
+                        User account = userRepository.findById(user.get().getId())
+                            .orElseThrow(() -> new EntityNotFoundException("User not found"));
+                        if (verification.upgradedHash() != null) {
+                            log.debug("Rehashing password for user {}", account.getId());
+                            account.setPassword(verification.upgradedHash());
+                        }
+                        account.setLastLogin(LocalDateTime.now());
+                        return issueTokens(userRepository.save(account));
+                    })));
+            }, applicationTaskExecutor);
+    }
+
+    // Refresh tokens are not tied to a shard key, so the owning user is found by hash first
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        String tokenHash = hash(request.getRefreshToken());
+        UUID userId = shardRouter.findFirst(() -> refreshTokenRepository.findUserIdByTokenHash(tokenHash))
+            .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        return shardRouter.onUser(userId, () -> transactionTemplate.execute(status -> rotate(tokenHash)))
+            .orElseThrow(() -> new BadCredentialsException("Refresh token has been revoked"));
+    }
+
+    public void logout(RefreshTokenRequest request) {
+        String tokenHash = hash(request.getRefreshToken());
+        shardRouter.findFirst(() -> refreshTokenRepository.findUserIdByTokenHash(tokenHash)).ifPresent(userId ->
+            shardRouter.onUser(userId, () -> transactionTemplate.execute(status ->
+                refreshTokenRepository.revoke(tokenHash, LocalDateTime.now()))));
+    }
+
+    @Scheduled(cron = "${jwt.refresh-cleanup-cron:0 0 3 * * *}")
+    public void deleteExpiredRefreshTokens() {
+        shardRouter.forEachShard(shard -> {
+            Integer deleted = transactionTemplate.execute(status ->
+                refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now()));
+            log.info("Deleted {} expired refresh tokens on shard {}", deleted, shard);
+        });
+    }
+
+    // A reused token yields empty instead of throwing, so the revocation of every session still commits
+    private Optional<AuthResponse> rotate(String tokenHash) {
+        RefreshToken token = refreshTokenRepository.findByTokenHash(tokenHash)
+            .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+
+        if (token.getRevokedAt() == null && (token.getExpiresAt().isBefore(now) || !token.getUser().isEnabled())) {
+            throw new BadCredentialsException("Refresh token has expired");
+        }
+        // The conditional update decides the race between two requests presenting the same token
+        if (token.getRevokedAt() == null && refreshTokenRepository.revoke(tokenHash, now) == 1) {
+            return Optional.of(issueTokens(token.getUser()));
+        }
+
+        // A rotated token being replayed means it has leaked, so end every session of the user
+        log.warn("Revoked refresh token reused for user {}", token.getUser().getId());
+        refreshTokenRepository.revokeAllForUser(token.getUser().getId(), now);
+        return Optional.empty();
+    }
+
+    private AuthResponse issueTokens(User user) {
+        String refreshToken = newToken();
+
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        token.setTokenHash(hash(refreshToken));
+        token.setExpiresAt(LocalDateTime.now().plus(refreshExpiration, ChronoUnit.MILLIS));
+        refreshTokenRepository.save(token);
+
+        String accessToken = jwtService.generateToken(DatabaseUserDetailsService.toUserDetails(user));
+        return new AuthResponse(accessToken, refreshToken, TOKEN_TYPE, jwtService.getExpiration() / 1000);
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.payment.service;
+
+import com.example.payment.config.ShardKeyType;
+import com.example.payment.config.Sharded;
+import com.example.payment.model.User;
+import com.example.payment.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Resolves JWT subjects, which are user ids, so controllers can read the id from
+ * {@link UserDetails#getUsername()}.
+ */
+@Service
+@RequiredArgsConstructor
+public class DatabaseUserDetailsService implements UserDetailsService {
+    private final UserRepository userRepository;
+
+    @Override
+    @Sharded(ShardKeyType.USER)
+    @Transactional(readOnly = true)
+    public UserDetails loadUserByUsername(String username) {
+        UUID id;
+        try {
+            id = UUID.fromString(username);
+        } catch (IllegalArgumentException e) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        return userRepository.findById(id)
+            .map(DatabaseUserDetailsService::toUserDetails)
+            .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    }
+
+    public static UserDetails toUserDetails(User user) {
+        return org.springframework.security.core.userdetails.User
+            .withUsername(user.getId().toString())
+            .password(user.getPassword())
+            .disabled(!user.isEnabled())
+            .authorities(user.getRoles().stream().map(SimpleGrantedAuthority::new).toList())
+            .build();
+    }
+}
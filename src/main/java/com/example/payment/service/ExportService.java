@@ -0,0 +1,240 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.dto.ExportFilter;
+import com.example.payment.dto.FileFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+    private static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private static final String PAYMENT_QUERY =
+        "SELECT p.id, p.user_id, p.amount, p.currency, p.status, p.payment_method, p.description, " +
+        "p.external_reference, p.created_at, p.updated_at, p.paid_at, p.canceled_at, p.refunded_at, " +
+        "p.error_message FROM payments p";
+
+    private static final String USER_QUERY =
+        "SELECT u.id, u.name, u.email, u.enabled, u.created_at, u.updated_at, u.last_login, " +
+        "(SELECT string_agg(r.role, ';') FROM user_roles r WHERE r.user_id = u.id) AS roles FROM users u";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    // The export runs for minutes and would hold up every other @Scheduled job on the shared scheduler
+    private final ExecutorService nightlyExecutor =
+        Executors.newSingleThreadExecutor(WorkloadContext.backgroundThreads("nightly-export-"));
+
+    @Value("${export.directory:./exports}")
+    private String exportDirectory;
+
+    @Value("${export.nightly-format:CSV}")
+    private FileFormat nightlyFormat;
+
+    public void exportPayments(ExportFilter filter, FileFormat format, boolean gzip, OutputStream out)
+            throws IOException {
+        String query = PAYMENT_QUERY + whereClause("p", filter, true);
+        export(query, format, gzip, out);
+    }
+
+    public void exportUsers(ExportFilter filter, FileFormat format, boolean gzip, OutputStream out)
+            throws IOException {
+        String query = USER_QUERY + whereClause("u", filter, false);
+        export(query, format, gzip, out);
+    }
+
+    public Path exportPaymentsToFile(ExportFilter filter, FileFormat format, boolean gzip, String fileName)
+            throws IOException {
+        Path directory = Paths.get(exportDirectory);
+        Files.createDirectories(directory);
+
+        Path target = directory.resolve(fileName + extension(format, gzip));
+        Path partial = directory.resolve(target.getFileName() + ".part");
+        try (OutputStream out = Files.newOutputStream(partial)) {
+            exportPayments(filter, format, gzip, out);
+        }
+        return Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Scheduled(cron = "${export.nightly-cron:-}")
+    public void scheduleNightlyPaymentExport() {
+        nightlyExecutor.execute(this::nightlyPaymentExport);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        nightlyExecutor.shutdownNow();
+    }
+
+    private void nightlyPaymentExport() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        ExportFilter filter = new ExportFilter(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), null);
+        try {
+            Path file = exportPaymentsToFile(filter, nightlyFormat, true, "payments-" + day);
+            log.info("Nightly payment export written to {}", file);
+        } catch (IOException e) {
+            log.error("Nightly payment export failed for {}", day, e);
+        }
+    }
+
+    public static String contentType(FileFormat format, boolean gzip) {
+        if (gzip) {
+            return "application/gzip";
+        }
+        return format == FileFormat.CSV ? "text/csv" : "application/x-ndjson";
+    }
+
+    public static String extension(FileFormat format, boolean gzip) {
+        String extension = format == FileFormat.CSV ? ".csv" : ".ndjson";
+        return gzip ? extension + ".gz" : extension;
+    }
+
+    private void export(String query, FileFormat format, boolean gzip, OutputStream out) throws IOException {
+        OutputStream stream = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        // Shards are streamed one after another into the same output; only the first carries the CSV header
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            boolean header = shard == 0;
+            try {
+                shardRouter.onShard(shard, () -> {
+                    exportShard(query, format, header, stream);
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        if (stream instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        stream.flush();
+    }
+
+    private void exportShard(String query, FileFormat format, boolean header, OutputStream stream) {
+        try (Connection connection = dataSource.getConnection()) {
+            switch (format) {
+                case CSV -> copyOut(connection, query, header, stream);
+                case NDJSON -> streamJson(connection, query, stream);
+            }
+        } catch (SQLException e) {
+            throw new UncheckedIOException(new IOException("Export failed: " + e.getMessage(), e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void copyOut(Connection connection, String query, boolean header, OutputStream out) throws SQLException, IOException {
+        String copy = "COPY (" + query + ") TO STDOUT WITH (FORMAT csv" + (header ? ", HEADER" : "") + ")";
+        long rows = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(copy, out);
+        log.debug("Exported {} rows as CSV", rows);
+    }
+
+    private void streamJson(Connection connection, String query, OutputStream out) throws SQLException, IOException {
+        // The PostgreSQL driver only uses a server-side cursor when autocommit is off
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            statement.setFetchSize(FETCH_SIZE);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            try (ResultSet resultSet = statement.executeQuery(query)) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                SerializedString[] names = new SerializedString[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    names[i] = new SerializedString(metaData.getColumnLabel(i + 1));
+                }
+
+                while (resultSet.next()) {
+                    generator.writeStartObject();
+                    for (int i = 0; i < columnCount; i++) {
+                        generator.writeFieldName(names[i]);
+                        writeValue(generator, resultSet.getObject(i + 1));
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+            }
+            generator.flush();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof BigDecimal number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Timestamp timestamp) {
+            generator.writeString(timestamp.toLocalDateTime().toString());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    // COPY does not accept bind parameters, so filters are rendered as literals from typed values only
+    private String whereClause(String alias, ExportFilter filter, boolean supportsStatus) {
+        if (filter == null) {
+            return "";
+        }
+        StringBuilder where = new StringBuilder();
+        if (filter.getFrom() != null) {
+            appendCondition(where, alias + ".created_at >= " + timestampLiteral(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            appendCondition(where, alias + ".created_at < " + timestampLiteral(filter.getTo()));
+        }
+        if (supportsStatus && filter.getStatus() != null) {
+            appendCondition(where, alias + ".status = '" + filter.getStatus().name() + "'");
+        }
+        return where.toString();
+    }
+
+    private void appendCondition(StringBuilder where, String condition) {
+        where.append(where.isEmpty() ? " WHERE " : " AND ").append(condition);
+    }
+
+    private String timestampLiteral(LocalDateTime value) {
+        return "TIMESTAMP '" + TIMESTAMP_FORMAT.format(value) + "'";
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.payment.service;
+
+import com.example.payment.util.CsvUtils;
+import com.example.payment.util.FxRateSnapshot;
+import com.example.payment.util.ReloadableResource;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the current {@link FxRateSnapshot}. A reload builds a complete new snapshot and swaps
+ * the reference, so readers never lock and never see a half-loaded table. Rates come from a CSV
+ * of {@code date,currency,rate} rows quoted against the base currency.
+ */
+@Slf4j
+@Service
+public class FxRateService {
+    private final ReloadableResource<FxRateSnapshot> snapshot;
+    private final String baseCurrency;
+    private final List<String> reportingCurrencies;
+
+    public FxRateService(
+            ResourceLoader resourceLoader,
+            @Value("${payment.fx.rates-location:classpath:fx-rates.csv}") String ratesLocation,
+            @Value("${payment.fx.base-currency:USD}") String baseCurrency,
+            @Value("${payment.fx.reporting-currencies:BRL,USD}") List<String> reportingCurrencies) {
+        this.snapshot = new ReloadableResource<>(resourceLoader.getResource(ratesLocation), this::read);
+        this.baseCurrency = baseCurrency;
+        this.reportingCurrencies = reportingCurrencies.stream().map(String::toUpperCase).toList();
+    }
+
+    @PostConstruct
+    public void loadRates() throws IOException {
+        loaded(snapshot.load());
+    }
+
+    @Scheduled(fixedDelayString = "${payment.fx.reload-interval:60000}")
+    public void reloadIfChanged() {
+        try {
+            FxRateSnapshot reloaded = snapshot.reloadIfChanged();
+            if (reloaded != null) {
+                loaded(reloaded);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Keep serving the previous table until the file is fixed
+            log.error("Ignoring invalid FX rates in {}: {}", snapshot.getDescription(), e.getMessage());
+        }
+    }
+
+    public FxRateSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public List<String> getReportingCurrencies() {
+        return reportingCurrencies;
+    }
+
+    /**
+     * Converts at the rate in force on {@code date}, rounded to cents, or returns null when no
+     * rate is available for either currency on that day.
+     */
+    public BigDecimal convert(BigDecimal amount, String from, String to, LocalDate date) {
+        double converted = snapshot.get().convert(amount.doubleValue(), from, to, date);
+        return Double.isNaN(converted) ? null : BigDecimal.valueOf(converted).setScale(2, RoundingMode.HALF_EVEN);
+    }
+
+    public Map<String, BigDecimal> toReportingCurrencies(BigDecimal amount, String currency, LocalDateTime at) {
+        Map<String, BigDecimal> converted = new LinkedHashMap<>();
+        if (amount == null || at == null) {
+            return converted;
+        }
+        for (String target : reportingCurrencies) {
+            BigDecimal value = convert(amount, currency, target, at.toLocalDate());
+            if (value != null) {
+                converted.put(target, value);
+            }
+        }
+        return converted;
+    }
+
+    private FxRateSnapshot read(Resource resource) throws IOException {
+        FxRateSnapshot.Builder builder = FxRateSnapshot.builder(baseCurrency);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = CsvUtils.parseLine(line);
+                try {
+                    builder.rate(LocalDate.parse(fields[0].trim()), fields[1].trim(), Double.parseDouble(fields[2].trim()));
+                } catch (DateTimeParseException | ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+                    throw new IOException("Invalid rate on line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private void loaded(FxRateSnapshot rates) {
+        log.info("Loaded FX rates from {}: {} currencies over {} days",
+            snapshot.getDescription(), rates.currencyCount(), rates.dayCount());
+    }
+}
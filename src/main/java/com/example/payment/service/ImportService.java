@@ -0,0 +1,470 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.dto.CreatePaymentRequest;
+import com.example.payment.dto.FileFormat;
+import com.example.payment.dto.ImportJobDTO;
+import com.example.payment.dto.StartImportRequest;
+import com.example.payment.model.ImportJob;
+import com.example.payment.model.ImportStatus;
+import com.example.payment.model.PaymentMethod;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.repository.ImportJobRepository;
+import com.example.payment.repository.UserRepository;
+import com.example.payment.util.CsvUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportService {
+    private static final int CHUNK_SIZE = 10_000;
+
+    private static final String CREATE_STAGING =
+        "CREATE TEMP TABLE IF NOT EXISTS payment_import_staging (" +
+        "id uuid, user_id uuid, amount numeric, currency varchar(255), status varchar(255), " +
+        "payment_method varchar(255), description varchar(255), external_reference varchar(255), " +
+        "created_at timestamp(6), paid_at timestamp(6), canceled_at timestamp(6), refunded_at timestamp(6)" +
+        ") ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGING =
+        "COPY payment_import_staging (id, user_id, amount, currency, status, payment_method, description, " +
+        "external_reference, created_at, paid_at, canceled_at, refunded_at) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MERGE_STAGING =
+        "INSERT INTO payments (id, user_id, amount, currency, status, payment_method, description, " +
+        "external_reference, created_at, updated_at, paid_at, canceled_at, refunded_at) " +
+        "SELECT id, user_id, amount, currency, status, payment_method, description, external_reference, " +
+        "created_at, now(), paid_at, canceled_at, refunded_at FROM payment_import_staging " +
+        "ON CONFLICT (id) DO NOTHING RETURNING id, user_id, currency, amount, status";
+
+    private final ImportJobRepository importJobRepository;
+    private final UserRepository userRepository;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final LedgerService ledgerService;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(WorkloadContext.backgroundThreads("import-job-"));
+    private final ForkJoinPool validationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final Set<UUID> activeJobs = ConcurrentHashMap.newKeySet();
+
+    @Value("${import.directory:./imports}")
+    private String importDirectory;
+
+    public ImportJobDTO startImport(StartImportRequest request) {
+        requireSingleShard();
+        Path file = resolve(request.getFileName());
+        if (!Files.isReadable(file)) {
+            throw new IllegalArgumentException("Import file not found: " + request.getFileName());
+        }
+
+        ImportJob job = new ImportJob();
+        job.setFileName(request.getFileName());
+        job.setFormat(request.getFormat());
+        job.setStatus(ImportStatus.PENDING);
+        job.setErrorFile(request.getFileName() + ".errors.csv");
+        ImportJob savedJob = importJobRepository.save(job);
+
+        submit(savedJob);
+        return convertToDTO(savedJob);
+    }
+
+    public ImportJobDTO resumeImport(UUID id) {
+        requireSingleShard();
+        ImportJob job = importJobRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Import job not found"));
+
+        if (job.getStatus() == ImportStatus.COMPLETED) {
+            throw new IllegalStateException("Import job already completed");
+        }
+        submit(job);
+        return convertToDTO(job);
+    }
+
+    public ImportJobDTO getImport(UUID id) {
+        return importJobRepository.findById(id)
+            .map(this::convertToDTO)
+            .orElseThrow(() -> new EntityNotFoundException("Import job not found"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        validationPool.shutdownNow();
+    }
+
+    // The staging merge writes into one database; rows would have to be split by user shard first
+    private void requireSingleShard() {
+        if (shardRouter.shardCount() > 1) {
+            throw new IllegalStateException("Imports are not supported while payments are sharded");
+        }
+    }
+
+    private void submit(ImportJob job) {
+        if (!activeJobs.add(job.getId())) {
+            throw new IllegalStateException("Import job is already running");
+        }
+        jobExecutor.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                activeJobs.remove(job.getId());
+            }
+        });
+    }
+
+    private void run(ImportJob job) {
+        job.setStatus(ImportStatus.RUNNING);
+        job.setErrorMessage(null);
+        job = importJobRepository.save(job);
+        log.info("Starting import {} of {} from row {}", job.getId(), job.getFileName(), job.getProcessedRows());
+
+        try (BufferedReader reader = Files.newBufferedReader(resolve(job.getFileName()), StandardCharsets.UTF_8);
+             BufferedWriter errors = openErrorFile(job)) {
+            String[] header = null;
+            if (job.getFormat() == FileFormat.CSV) {
+                String headerLine = reader.readLine();
+                if (headerLine == null) {
+                    throw new IllegalArgumentException("Import file is empty");
+                }
+                header = CsvUtils.parseLine(headerLine);
+            }
+            for (long skipped = 0; skipped < job.getProcessedRows(); skipped++) {
+                if (reader.readLine() == null) {
+                    break;
+                }
+            }
+
+            // Validation of the next chunk overlaps with loading the current one
+            long chunkStart = job.getProcessedRows();
+            List<String> chunk = readChunk(reader);
+            CompletableFuture<List<ImportRow>> pending = chunk.isEmpty() ? null : parseAsync(job, header, chunk, chunkStart);
+            while (pending != null) {
+                List<ImportRow> rows = pending.join();
+                long nextStart = chunkStart + rows.size();
+                List<String> next = readChunk(reader);
+                pending = next.isEmpty() ? null : parseAsync(job, header, next, nextStart);
+
+                job = load(job, rows, errors);
+                chunkStart = nextStart;
+                log.info("Import {} progress: {} rows processed, {} imported, {} failed",
+                    job.getId(), job.getProcessedRows(), job.getImportedRows(), job.getFailedRows());
+            }
+
+            job.setStatus(ImportStatus.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            importJobRepository.save(job);
+            log.info("Import {} completed", job.getId());
+        } catch (Exception e) {
+            log.error("Import {} failed", job.getId(), e);
+            ImportJob failedJob = importJobRepository.findById(job.getId()).orElse(job);
+            failedJob.setStatus(ImportStatus.FAILED);
+            String message = e.getMessage();
+            failedJob.setErrorMessage(message != null && message.length() > 1000 ? message.substring(0, 1000) : message);
+            importJobRepository.save(failedJob);
+        }
+    }
+
+    private CompletableFuture<List<ImportRow>> parseAsync(
+            ImportJob job, String[] header, List<String> lines, long chunkStart) {
+        // Parallel streams started from a pool worker stay inside that pool
+        return CompletableFuture.supplyAsync(() -> IntStream.range(0, lines.size())
+            .parallel()
+            .mapToObj(i -> parse(job, header, chunkStart + i + 1, lines.get(i)))
+            .toList(), validationPool);
+    }
+
+    private ImportJob load(ImportJob job, List<ImportRow> rows, BufferedWriter errors) throws IOException {
+        Set<String> emails = rows.stream()
+            .filter(row -> row.error() == null && !row.blank())
+            .map(ImportRow::email)
+            .collect(Collectors.toSet());
+        Map<String, UUID> users = new HashMap<>(emails.size() * 2);
+        if (!emails.isEmpty()) {
+            userRepository.findIdentitiesByEmailIn(emails)
+                .forEach(identity -> users.put(identity.getEmail(), identity.getId()));
+        }
+
+        StringBuilder copyData = new StringBuilder(rows.size() * 160);
+        StringBuilder errorLines = new StringBuilder();
+        long failed = 0;
+        for (ImportRow row : rows) {
+            if (row.blank()) {
+                continue;
+            }
+            String error = row.error();
+            UUID userId = error == null ? users.get(row.email()) : null;
+            if (error == null && userId == null) {
+                error = "Unknown user email: " + row.email();
+            }
+            if (error != null) {
+                appendError(errorLines, row, error);
+                failed++;
+                continue;
+            }
+            appendStagingRow(copyData, row, userId);
+        }
+
+        ImportJob current = job;
+        long failedRows = failed;
+        ImportJob saved = transactionTemplate.execute(status -> {
+            // Imported payments skip publishStatusChange, so their opening entries are posted here
+            List<LedgerService.Opening> merged = copyAndMerge(copyData.toString());
+            ledgerService.postOpening(merged);
+            current.setProcessedRows(current.getProcessedRows() + rows.size());
+            current.setImportedRows(current.getImportedRows() + merged.size());
+            current.setFailedRows(current.getFailedRows() + failedRows);
+            return importJobRepository.save(current);
+        });
+        // Written only once the chunk's progress is committed, so a resumed job, which restarts
+        // after the last committed chunk, never repeats a row's error. A crash in between loses
+        // at most this chunk's error lines.
+        errors.write(errorLines.toString());
+        errors.flush();
+        return saved;
+    }
+
+    private List<LedgerService.Opening> copyAndMerge(String copyData) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+            if (copyData.isEmpty()) {
+                return List.of();
+            }
+            connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(COPY_STAGING, new StringReader(copyData));
+            // Rows skipped by ON CONFLICT are not returned, so only newly imported payments are posted
+            List<LedgerService.Opening> merged = new ArrayList<>();
+            try (ResultSet result = statement.executeQuery(MERGE_STAGING)) {
+                while (result.next()) {
+                    merged.add(new LedgerService.Opening(
+                        result.getObject("id", UUID.class),
+                        result.getObject("user_id", UUID.class),
+                        result.getString("currency"),
+                        result.getBigDecimal("amount"),
+                        PaymentStatus.valueOf(result.getString("status"))));
+                }
+            }
+            return merged;
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Failed to load import chunk: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private ImportRow parse(ImportJob job, String[] header, long rowNumber, String line) {
+        if (line.isBlank()) {
+            return ImportRow.blank(rowNumber, line);
+        }
+        try {
+            Map<String, String> fields = job.getFormat() == FileFormat.CSV
+                ? CsvUtils.toMap(header, line)
+                : jsonFields(line);
+
+            CreatePaymentRequest request = new CreatePaymentRequest();
+            request.setAmount(fields.get("amount") == null ? null : new BigDecimal(fields.get("amount")));
+            request.setPaymentMethod(enumValue(PaymentMethod.class, fields.get("payment_method")));
+            request.setCurrency(fields.get("currency"));
+            request.setDescription(fields.get("description"));
+
+            Set<ConstraintViolation<CreatePaymentRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                return ImportRow.failed(rowNumber, line, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            }
+
+            String email = fields.get("email");
+            if (email == null || email.isBlank()) {
+                return ImportRow.failed(rowNumber, line, "Email is required");
+            }
+            LocalDateTime createdAt = timestamp(fields.get("created_at"));
+            if (createdAt == null) {
+                return ImportRow.failed(rowNumber, line, "Created at is required");
+            }
+            PaymentStatus status = enumValue(PaymentStatus.class, fields.get("status"));
+
+            // Ids derived from the job and row make a resumed job skip rows it already merged. A new
+            // job for the same file gets new ids, so only files carrying an id column can be re-imported safely
+            UUID id = fields.get("id") != null
+                ? UUID.fromString(fields.get("id"))
+                : UUID.nameUUIDFromBytes((job.getId() + ":" + rowNumber).getBytes(StandardCharsets.UTF_8));
+
+            return new ImportRow(rowNumber, line, false, null, id, email, request,
+                status == null ? PaymentStatus.COMPLETED : status,
+                fields.get("external_reference"), createdAt,
+                timestamp(fields.get("paid_at")),
+                timestamp(fields.get("canceled_at")),
+                timestamp(fields.get("refunded_at")));
+        } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+            return ImportRow.failed(rowNumber, line, e.getMessage());
+        }
+    }
+
+    private Map<String, String> jsonFields(String line) throws JsonProcessingException {
+        JsonNode node = objectMapper.reader()
+            .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .readTree(line);
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            fields.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText());
+        }
+        return fields;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value) {
+        return value == null || value.isBlank() ? null : Enum.valueOf(type, value.trim().toUpperCase());
+    }
+
+    private static LocalDateTime timestamp(String value) {
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value.trim());
+    }
+
+    private static void appendStagingRow(StringBuilder out, ImportRow row, UUID userId) {
+        CreatePaymentRequest request = row.request();
+        CsvUtils.appendField(out, row.id()).append(',');
+        CsvUtils.appendField(out, userId).append(',');
+        CsvUtils.appendField(out, request.getAmount().toPlainString()).append(',');
+        CsvUtils.appendField(out, request.getCurrency()).append(',');
+        CsvUtils.appendField(out, row.status().name()).append(',');
+        CsvUtils.appendField(out, request.getPaymentMethod().name()).append(',');
+        CsvUtils.appendField(out, request.getDescription()).append(',');
+        CsvUtils.appendField(out, row.externalReference()).append(',');
+        CsvUtils.appendField(out, row.createdAt()).append(',');
+        CsvUtils.appendField(out, row.paidAt()).append(',');
+        CsvUtils.appendField(out, row.canceledAt()).append(',');
+        CsvUtils.appendField(out, row.refundedAt()).append('\n');
+    }
+
+    private BufferedWriter openErrorFile(ImportJob job) throws IOException {
+        Path errorFile = resolve(job.getErrorFile());
+        boolean exists = Files.exists(errorFile) && Files.size(errorFile) > 0;
+        BufferedWriter writer = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (!exists) {
+            writer.write("row,error,raw\n");
+        }
+        return writer;
+    }
+
+    private static void appendError(StringBuilder lines, ImportRow row, String error) {
+        lines.append(row.rowNumber()).append(',');
+        CsvUtils.appendField(lines, error).append(',');
+        CsvUtils.appendField(lines, row.raw()).append('\n');
+    }
+
+    private static List<String> readChunk(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        String line;
+        while (lines.size() < CHUNK_SIZE && (line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private Path resolve(String fileName) {
+        Path directory = Paths.get(importDirectory).toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException("Import files must be inside the import directory");
+        }
+        return file;
+    }
+
+    private ImportJobDTO convertToDTO(ImportJob job) {
+        ImportJobDTO dto = new ImportJobDTO();
+        dto.setId(job.getId());
+        dto.setFileName(job.getFileName());
+        dto.setFormat(job.getFormat());
+        dto.setStatus(job.getStatus());
+        dto.setProcessedRows(job.getProcessedRows());
+        dto.setImportedRows(job.getImportedRows());
+        dto.setFailedRows(job.getFailedRows());
+        dto.setErrorFile(job.getErrorFile());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+
+    private record ImportRow(
+            long rowNumber,
+            String raw,
+            boolean blank,
+            String error,
+            UUID id,
+            String email,
+            CreatePaymentRequest request,
+            PaymentStatus status,
+            String externalReference,
+            LocalDateTime createdAt,
+            LocalDateTime paidAt,
+            LocalDateTime canceledAt,
+            LocalDateTime refundedAt) {
+
+        static ImportRow blank(long rowNumber, String raw) {
+            return new ImportRow(rowNumber, raw, true, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        static ImportRow failed(long rowNumber, String raw, String error) {
+            return new ImportRow(rowNumber, raw, false, error, null, null, null, null, null, null, null, null, null);
+        }
+    }
+}
@@ -30,6 +30,10 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    public long getExpiration() {
+        return jwtExpiration;
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
         final String username = extractUsername(token);
         return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
@@ -0,0 +1,268 @@
+package com.example.payment.service;
+
+import com.example.payment.config.ShardKeyType;
+import com.example.payment.config.Sharded;
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.dto.BalanceDTO;
+import com.example.payment.dto.LedgerCheckReport;
+import com.example.payment.model.LedgerAccount;
+import com.example.payment.model.Payment;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.util.ShardKeys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Double-entry ledger of payment amounts per user. Every status change posts two immutable
+ * entries, moving the amount between the accounts of the old and the new status, and adds them
+ * to materialized balances in the same transaction. Balances are striped by payment, so payments
+ * of one busy user update different rows instead of queueing on a single row lock.
+ */
+@Slf4j
+@Service
+public class LedgerService {
+    private static final int MAX_FINDINGS_PER_PARTITION = 100;
+
+    private static final String INSERT_ENTRY =
+        "INSERT INTO ledger_entries (user_id, payment_id, account, currency, amount, from_status, to_status) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ADD_TO_BALANCE =
+        "INSERT INTO ledger_balances (user_id, account, currency, stripe, balance) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, account, currency, stripe) " +
+            "DO UPDATE SET balance = ledger_balances.balance + EXCLUDED.balance";
+
+    private static final String BALANCE_MISMATCHES =
+        "SELECT COALESCE(e.user_id, b.user_id) AS user_id, COALESCE(e.account, b.account) AS account, " +
+            "COALESCE(e.currency, b.currency) AS currency, " +
+            "COALESCE(e.total, 0) AS derived, COALESCE(b.total, 0) AS materialized " +
+            "FROM (SELECT user_id, account, currency, SUM(amount) AS total FROM ledger_entries " +
+            "WHERE user_id BETWEEN ? AND ? GROUP BY user_id, account, currency) e " +
+            "FULL JOIN (SELECT user_id, account, currency, SUM(balance) AS total FROM ledger_balances " +
+            "WHERE user_id BETWEEN ? AND ? GROUP BY user_id, account, currency) b " +
+            "ON e.user_id = b.user_id AND e.account = b.account AND e.currency = b.currency " +
+            "WHERE COALESCE(e.total, 0) <> COALESCE(b.total, 0) " +
+            "LIMIT ?";
+    private static final String UNBALANCED_PAYMENTS =
+        "SELECT payment_id FROM ledger_entries WHERE user_id BETWEEN ? AND ? " +
+            "GROUP BY payment_id HAVING SUM(amount) <> 0 LIMIT ?";
+    // The account LedgerAccount.holding maps the payment's status to
+    private static final String HOLDING_ACCOUNT =
+        "CASE p.status WHEN 'PENDING' THEN 'PENDING' WHEN 'PROCESSING' THEN 'PENDING' " +
+            "WHEN 'COMPLETED' THEN 'CAPTURED' WHEN 'REFUNDED' THEN 'REFUNDED' ELSE 'CLEARING' END";
+    // A payment's entries add up to its amount in that account, or to nothing when it is CLEARING
+    private static final String MISPLACED_PAYMENTS =
+        "SELECT p.id FROM payments p LEFT JOIN (SELECT payment_id, account, SUM(amount) AS total " +
+            "FROM ledger_entries WHERE user_id BETWEEN ? AND ? GROUP BY payment_id, account) e " +
+            "ON e.payment_id = p.id AND e.account = " + HOLDING_ACCOUNT + " " +
+            "WHERE p.user_id BETWEEN ? AND ? " +
+            "AND COALESCE(e.total, 0) <> CASE WHEN " + HOLDING_ACCOUNT + " = 'CLEARING' THEN 0 ELSE p.amount END " +
+            "LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final int stripes;
+    private final int checkPartitions;
+    private final ExecutorService checkExecutor;
+
+    public LedgerService(
+            JdbcTemplate jdbcTemplate,
+            ShardRouter shardRouter,
+            @Value("${payment.ledger.stripes:8}") int stripes,
+            @Value("${payment.ledger.check-partitions:16}") int checkPartitions,
+            @Value("${payment.ledger.check-threads:4}") int checkThreads) {
+        if (checkPartitions < 1 || checkPartitions > ShardKeys.BUCKETS) {
+            throw new IllegalArgumentException("payment.ledger.check-partitions must be between 1 and " + ShardKeys.BUCKETS);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.stripes = stripes;
+        this.checkPartitions = checkPartitions;
+        this.checkExecutor = Executors.newFixedThreadPool(checkThreads, WorkloadContext.backgroundThreads("ledger-check-"));
+    }
+
+    /**
+     * Posts the move of {@code payment}'s amount from the account of {@code previousStatus} to the
+     * account of its current status. Runs in the transaction that changed the status, so the
+     * ledger can never disagree with the payment.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void post(Payment payment, PaymentStatus previousStatus) {
+        LedgerAccount from = LedgerAccount.holding(previousStatus);
+        LedgerAccount to = LedgerAccount.holding(payment.getStatus());
+        if (from == to) {
+            return;
+        }
+        UUID userId = payment.getUser().getId();
+        String currency = payment.getCurrency().toUpperCase();
+        BigDecimal amount = payment.getAmount();
+        String fromStatus = previousStatus == null ? null : previousStatus.name();
+        String toStatus = payment.getStatus().name();
+
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, List.of(
+            new Object[]{userId, payment.getId(), from.name(), currency, amount.negate(), fromStatus, toStatus},
+            new Object[]{userId, payment.getId(), to.name(), currency, amount, fromStatus, toStatus}));
+
+        // Every posting locks its two rows in account order, so concurrent postings cannot deadlock
+        int stripe = Math.floorMod(payment.getId().hashCode(), stripes);
+        Object[] debit = {userId, from.name(), currency, stripe, amount.negate()};
+        Object[] credit = {userId, to.name(), currency, stripe, amount};
+        jdbcTemplate.batchUpdate(ADD_TO_BALANCE, from.ordinal() < to.ordinal()
+            ? List.of(debit, credit)
+            : List.of(credit, debit));
+    }
+
+    /**
+     * Posts the opening entries of payments written without going through a status change, such
+     * as imported ones: each amount moves from CLEARING to the account of the payment's status.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void postOpening(List<Opening> payments) {
+        List<Object[]> entries = new ArrayList<>();
+        Map<BalanceKey, BigDecimal> deltas = new TreeMap<>();
+        for (Opening payment : payments) {
+            LedgerAccount to = LedgerAccount.holding(payment.status());
+            if (to == LedgerAccount.CLEARING) {
+                continue;
+            }
+            String currency = payment.currency().toUpperCase();
+            String status = payment.status().name();
+            entries.add(new Object[]{payment.userId(), payment.paymentId(), LedgerAccount.CLEARING.name(), currency,
+                payment.amount().negate(), null, status});
+            entries.add(new Object[]{payment.userId(), payment.paymentId(), to.name(), currency,
+                payment.amount(), null, status});
+
+            int stripe = Math.floorMod(payment.paymentId().hashCode(), stripes);
+            deltas.merge(new BalanceKey(payment.userId(), LedgerAccount.CLEARING, currency, stripe),
+                payment.amount().negate(), BigDecimal::add);
+            deltas.merge(new BalanceKey(payment.userId(), to, currency, stripe), payment.amount(), BigDecimal::add);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, entries);
+        // Sorted like the rows of a single posting, for the same deadlock freedom
+        jdbcTemplate.batchUpdate(ADD_TO_BALANCE, deltas.entrySet().stream()
+            .map(delta -> new Object[]{delta.getKey().userId(), delta.getKey().account().name(),
+                delta.getKey().currency(), delta.getKey().stripe(), delta.getValue()})
+            .toList());
+    }
+
+    @Sharded(ShardKeyType.USER)
+    @Transactional(readOnly = true)
+    public List<BalanceDTO> getBalances(UUID userId) {
+        Map<String, Map<LedgerAccount, BigDecimal>> byCurrency = new TreeMap<>();
+        jdbcTemplate.query(
+            "SELECT account, currency, SUM(balance) AS balance FROM ledger_balances " +
+                "WHERE user_id = ? GROUP BY account, currency",
+            row -> {
+                byCurrency.computeIfAbsent(row.getString("currency"), currency -> new EnumMap<>(LedgerAccount.class))
+                    .put(LedgerAccount.valueOf(row.getString("account")), row.getBigDecimal("balance"));
+            },
+            userId);
+
+        List<BalanceDTO> balances = new ArrayList<>();
+        byCurrency.forEach((currency, accounts) -> balances.add(new BalanceDTO(
+            currency,
+            accounts.getOrDefault(LedgerAccount.PENDING, BigDecimal.ZERO),
+            accounts.getOrDefault(LedgerAccount.CAPTURED, BigDecimal.ZERO),
+            accounts.getOrDefault(LedgerAccount.REFUNDED, BigDecimal.ZERO))));
+        return balances;
+    }
+
+    /**
+     * Re-derives every balance from its entries and reports the ones that differ. Each shard is
+     * split into ranges of buckets that are checked in parallel; each range is compared in a
+     * single statement, so postings made meanwhile cannot show up as false mismatches.
+     */
+    public LedgerCheckReport check() {
+        List<CompletableFuture<LedgerCheckReport>> parts = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            for (int partition = 0; partition < checkPartitions; partition++) {
+                int current = shard;
+                int firstBucket = partition * ShardKeys.BUCKETS / checkPartitions;
+                int lastBucket = (partition + 1) * ShardKeys.BUCKETS / checkPartitions - 1;
+                parts.add(CompletableFuture.supplyAsync(
+                    () -> shardRouter.onShard(current, () -> checkBuckets(firstBucket, lastBucket)), checkExecutor));
+            }
+        }
+
+        List<LedgerCheckReport.Mismatch> mismatches = new ArrayList<>();
+        List<UUID> unbalancedPayments = new ArrayList<>();
+        List<UUID> misplacedPayments = new ArrayList<>();
+        boolean truncated = false;
+        for (CompletableFuture<LedgerCheckReport> part : parts) {
+            LedgerCheckReport report = part.join();
+            mismatches.addAll(report.mismatches());
+            unbalancedPayments.addAll(report.unbalancedPayments());
+            misplacedPayments.addAll(report.misplacedPayments());
+            truncated |= report.truncated();
+        }
+        if (!mismatches.isEmpty() || !unbalancedPayments.isEmpty() || !misplacedPayments.isEmpty()) {
+            log.warn("Ledger check found {} balance mismatches, {} unbalanced payments and {} misplaced payments",
+                mismatches.size(), unbalancedPayments.size(), misplacedPayments.size());
+        }
+        return new LedgerCheckReport(shardRouter.shardCount(), checkPartitions,
+            mismatches, unbalancedPayments, misplacedPayments, truncated);
+    }
+
+    private LedgerCheckReport checkBuckets(int firstBucket, int lastBucket) {
+        // The bucket is in the leading bits of the user id, so a bucket range is a user id range
+        UUID lower = ShardKeys.firstId(firstBucket);
+        UUID upper = ShardKeys.lastId(lastBucket);
+
+        List<LedgerCheckReport.Mismatch> mismatches = jdbcTemplate.query(BALANCE_MISMATCHES,
+            (row, rowNum) -> new LedgerCheckReport.Mismatch(
+                row.getObject("user_id", UUID.class),
+                LedgerAccount.valueOf(row.getString("account")),
+                row.getString("currency"),
+                row.getBigDecimal("derived"),
+                row.getBigDecimal("materialized")),
+            lower, upper, lower, upper, MAX_FINDINGS_PER_PARTITION);
+        List<UUID> unbalancedPayments = jdbcTemplate.queryForList(UNBALANCED_PAYMENTS, UUID.class,
+            lower, upper, MAX_FINDINGS_PER_PARTITION);
+        List<UUID> misplacedPayments = jdbcTemplate.queryForList(MISPLACED_PAYMENTS, UUID.class,
+            lower, upper, lower, upper, MAX_FINDINGS_PER_PARTITION);
+        boolean truncated = mismatches.size() == MAX_FINDINGS_PER_PARTITION
+            || unbalancedPayments.size() == MAX_FINDINGS_PER_PARTITION
+            || misplacedPayments.size() == MAX_FINDINGS_PER_PARTITION;
+        return new LedgerCheckReport(1, 1, mismatches, unbalancedPayments, misplacedPayments, truncated);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkExecutor.shutdown();
+    }
+
+    public record Opening(UUID paymentId, UUID userId, String currency, BigDecimal amount, PaymentStatus status) {
+    }
+
+    private record BalanceKey(UUID userId, LedgerAccount account, String currency, int stripe)
+            implements Comparable<BalanceKey> {
+        private static final Comparator<BalanceKey> ORDER = Comparator.comparing(BalanceKey::userId)
+            .thenComparing(BalanceKey::account)
+            .thenComparing(BalanceKey::currency)
+            .thenComparingInt(BalanceKey::stripe);
+
+        @Override
+        public int compareTo(BalanceKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.payment.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs password hashing on its own bounded pool so signup and login storms cannot take
+ * request threads away from payment traffic. When the queue is full, submissions fail
+ * immediately with a {@link java.util.concurrent.RejectedExecutionException}.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final String dummyHash;
+
+    public PasswordHashingService(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${security.password.hashing-threads:0}") int threads,
+            @Value("${security.password.hashing-queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("password-hashing-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        // Verified against when the email is unknown, so both paths cost the same
+        this.dummyHash = passwordEncoder.encode("dummy-password-for-timing");
+
+        Gauge.builder("auth.password.hashing.queue", executor, e -> e.getQueue().size())
+            .description("Password hashing tasks waiting for a thread")
+            .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Password hashing tasks in progress")
+            .register(meterRegistry);
+        log.info("Password hashing pool started with {} threads and queue capacity {}", poolSize, queueCapacity);
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor);
+    }
+
+    /**
+     * Checks a password and, when the stored hash uses outdated parameters, produces a
+     * replacement hash on the same task while the raw password is still at hand.
+     */
+    public CompletableFuture<Verification> verify(String rawPassword, String encodedPassword) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (encodedPassword == null) {
+                passwordEncoder.matches(rawPassword, dummyHash);
+                return new Verification(false, null);
+            }
+            if (!passwordEncoder.matches(rawPassword, encodedPassword)) {
+                return new Verification(false, null);
+            }
+            String upgradedHash = passwordEncoder.upgradeEncoding(encodedPassword)
+                ? passwordEncoder.encode(rawPassword)
+                : null;
+            return new Verification(true, upgradedHash);
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public record Verification(boolean matches, String upgradedHash) {
+    }
+}
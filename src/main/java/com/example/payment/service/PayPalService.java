@@ -1,17 +1,21 @@
 package com.example.payment.service;
 
 import com.example.payment.model.Payment;
+import com.example.payment.model.PaymentMethod;
 import com.paypal.core.PayPalHttpClient;
 import com.paypal.http.HttpResponse;
 import com.paypal.orders.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.util.List;
 
 @Slf4j
+@Lazy
 @Service
 @RequiredArgsConstructor
 public class PayPalService {
@@ -22,11 +26,14 @@ public class PayPalService {
     private String clientSecret;
 
     private final PayPalHttpClient payPalClient;
+    private final ProviderErrorClassifier errorClassifier;
 
     public String processPayment(Payment payment) {
         try {
             OrdersCreateRequest request = new OrdersCreateRequest();
             request.prefer("return=representation");
+            // Retries of the same payment must not create a second order
+            request.header("PayPal-Request-Id", "payment-" + payment.getId());
             request.requestBody(createOrderRequest(payment));
 
             HttpResponse<Order> response = payPalClient.execute(request);
@@ -34,8 +41,7 @@ public class PayPalService {
             
             return order.id();
         } catch (IOException e) {
-            log.error("PayPal payment processing failed", e);
-            throw new PaymentProcessingException("PayPal payment failed: " + e.getMessage());
+            throw errorClassifier.toException(PaymentMethod.PAYPAL, "PayPal payment failed", e);
         }
     }
 
@@ -44,8 +50,7 @@ public class PayPalService {
             // Implement PayPal refund logic
             log.info("Processing PayPal refund for payment: {}", payment.getId());
         } catch (Exception e) {
-            log.error("PayPal refund processing failed", e);
-            throw new PaymentProcessingException("PayPal refund failed: " + e.getMessage());
+            throw errorClassifier.toException(PaymentMethod.PAYPAL, "PayPal refund failed", e);
         }
     }
 
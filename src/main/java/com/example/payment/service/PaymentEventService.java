@@ -0,0 +1,312 @@
+package com.example.payment.service;
+
+import com.example.payment.dto.PaymentDTO;
+import com.example.payment.event.PaymentStatusChangedEvent;
+import com.example.payment.util.PaymentVersion;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes payment status changes to Server-Sent Events subscribers. Idle connections hold no
+ * thread: emitters live on servlet async requests, and writes go through a small sender pool
+ * fed by a bounded queue per connection. Changes fan out across nodes through Redis pub/sub.
+ */
+@Slf4j
+@Service
+public class PaymentEventService implements MessageListener {
+    private static final String STATUS_EVENT = "payment-status";
+
+    private final PaymentService paymentService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    private final Map<UUID, Set<Subscriber>> paymentSubscribers = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // Recent events kept for Last-Event-ID replay; every node sees every event, so each holds the same window
+    private final ConcurrentLinkedDeque<PaymentStatusChangedEvent> recentEvents = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recentEventCount = new AtomicInteger();
+
+    private final ExecutorService sender;
+
+    @Value("${payment.events.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    @Value("${payment.events.channel:payment-events}")
+    private String channel;
+
+    @Value("${payment.events.max-connections:50000}")
+    private int maxConnections;
+
+    @Value("${payment.events.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${payment.events.replay-size:10000}")
+    private int replaySize;
+
+    @Value("${payment.events.timeout:30m}")
+    private Duration timeout;
+
+    public PaymentEventService(
+            PaymentService paymentService,
+            ObjectMapper objectMapper,
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payment.events.send-threads:4}") int sendThreads) {
+        this.paymentService = paymentService;
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisTemplate;
+        this.sender = Executors.newFixedThreadPool(sendThreads, new CustomizableThreadFactory("payment-events-"));
+        Gauge.builder("payment.events.connections", connections, AtomicInteger::get)
+            .description("Open payment event streams on this node")
+            .register(meterRegistry);
+    }
+
+    public SseEmitter subscribeToPayment(UUID paymentId, String lastEventId) {
+        // Registered before the payment is read, so a change committed in between is either in the
+        // state read below or delivered to the subscriber; a duplicate is dropped by its version
+        Subscriber subscriber = register(paymentSubscribers, paymentId);
+        PaymentDTO payment;
+        try {
+            payment = paymentService.getCurrentPayment(paymentId);
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+
+        // Anything newer than what the client last saw is sent straight away
+        long lastVersion = parseVersion(lastEventId);
+        if (payment.getUpdatedAt() != null && PaymentVersion.of(payment.getUpdatedAt()) > lastVersion) {
+            subscriber.offer(toSseEvent(payment));
+        }
+        return subscriber.emitter;
+    }
+
+    public SseEmitter subscribeToUser(UUID userId, String lastEventId) {
+        Subscriber subscriber = register(userSubscribers, userId);
+
+        if (lastEventId != null) {
+            long lastVersion = parseVersion(lastEventId);
+            for (PaymentStatusChangedEvent event : recentEvents) {
+                if (userId.equals(event.userId()) && version(event) > lastVersion) {
+                    subscriber.offer(toSseEvent(event.payment()));
+                }
+            }
+        }
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        StringRedisTemplate redis = redisEnabled ? redisTemplate.getIfAvailable() : null;
+        if (redis == null) {
+            dispatch(event);
+            return;
+        }
+        try {
+            redis.convertAndSend(channel, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.warn("Failed to publish payment event to Redis, delivering locally only", e);
+            dispatch(event);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            dispatch(objectMapper.readValue(message.getBody(), PaymentStatusChangedEvent.class));
+        } catch (IOException e) {
+            log.warn("Discarding malformed payment event", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.events.heartbeat-interval:20000}")
+    public void sendHeartbeats() {
+        Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+        paymentSubscribers.values().forEach(subscribers -> subscribers.forEach(s -> s.offer(heartbeat)));
+        userSubscribers.values().forEach(subscribers -> subscribers.forEach(s -> s.offer(heartbeat)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        paymentSubscribers.values().forEach(subscribers -> subscribers.forEach(s -> s.emitter.complete()));
+        userSubscribers.values().forEach(subscribers -> subscribers.forEach(s -> s.emitter.complete()));
+        sender.shutdown();
+    }
+
+    private void dispatch(PaymentStatusChangedEvent event) {
+        remember(event);
+
+        Set<Subscriber> byPayment = paymentSubscribers.get(event.payment().getId());
+        Set<Subscriber> byUser = event.userId() == null ? null : userSubscribers.get(event.userId());
+        if (byPayment == null && byUser == null) {
+            return;
+        }
+        // Serialized once and shared by every connection
+        Set<ResponseBodyEmitter.DataWithMediaType> sseEvent = toSseEvent(event.payment());
+        if (byPayment != null) {
+            byPayment.forEach(subscriber -> subscriber.offer(sseEvent));
+        }
+        if (byUser != null) {
+            byUser.forEach(subscriber -> subscriber.offer(sseEvent));
+        }
+    }
+
+    private void remember(PaymentStatusChangedEvent event) {
+        recentEvents.addLast(event);
+        if (recentEventCount.incrementAndGet() > replaySize && recentEvents.pollFirst() != null) {
+            recentEventCount.decrementAndGet();
+        }
+    }
+
+    private Subscriber register(Map<UUID, Set<Subscriber>> registry, UUID key) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new RejectedExecutionException("Too many open event streams");
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize), registry, key);
+        registry.compute(key, (k, subscribers) -> {
+            Set<Subscriber> current = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            current.add(subscriber);
+            return current;
+        });
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return subscriber;
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> toSseEvent(PaymentDTO payment) {
+        try {
+            SseEmitter.SseEventBuilder event = SseEmitter.event()
+                .name(STATUS_EVENT)
+                .data(objectMapper.writeValueAsString(payment), MediaType.APPLICATION_JSON);
+            if (payment.getUpdatedAt() != null) {
+                event.id(PaymentVersion.format(PaymentVersion.of(payment.getUpdatedAt())));
+            }
+            return event.build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize payment event", e);
+        }
+    }
+
+    private static long version(PaymentStatusChangedEvent event) {
+        return event.payment().getUpdatedAt() == null ? 0 : PaymentVersion.of(event.payment().getUpdatedAt());
+    }
+
+    private static long parseVersion(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return 0;
+        }
+        try {
+            return PaymentVersion.parse(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Map<UUID, Set<Subscriber>> registry;
+        private final UUID key;
+
+        private Subscriber(
+                SseEmitter emitter,
+                BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue,
+                Map<UUID, Set<Subscriber>> registry,
+                UUID key) {
+            this.emitter = emitter;
+            this.queue = queue;
+            this.registry = registry;
+            this.key = key;
+        }
+
+        // Also called directly when the stream fails before it is handed to Spring MVC
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                connections.decrementAndGet();
+                registry.computeIfPresent(key, (k, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                // The client is not keeping up; it reconnects and resumes from its Last-Event-ID
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while ((event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                queue.clear();
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty() && !closed.get()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
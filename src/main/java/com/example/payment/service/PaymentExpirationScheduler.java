@@ -0,0 +1,170 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.repository.PaymentRepository;
+import com.example.payment.util.TimerWheel;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires payment deadlines ({@code payments.expires_at}). On each shard, the node holding the
+ * shard's {@code payment-expiration} lease keeps the deadlines due within the look-ahead in a
+ * timer wheel. It reads them window by window with a range scan of the deadline index, so
+ * pending payments are never scanned as a whole. A deadline is always set further out than the
+ * look-ahead, so it cannot fall into a window that has already been read.
+ * <p>
+ * The wheel and the windows are only touched on the scheduler's own thread.
+ */
+@Slf4j
+@Component
+public class PaymentExpirationScheduler {
+    private static final String LEASE = "payment-expiration";
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final long tickMillis;
+    private final long refreshMillis;
+    private final Duration lookAhead;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+    private final ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(WorkloadContext.backgroundThreads("payment-expiration-"));
+
+    private final TimerWheel<UUID> wheel;
+    // End of the window read so far on each shard; null while another node holds its lease
+    private final LocalDateTime[] loadedUntil;
+
+    public PaymentExpirationScheduler(
+            PaymentService paymentService,
+            PaymentRepository paymentRepository,
+            JdbcTemplate jdbcTemplate,
+            ShardRouter shardRouter,
+            @Value("${payment.expiration.tick:1000}") long tickMillis,
+            @Value("${payment.expiration.refresh-interval:10000}") long refreshMillis,
+            @Value("${payment.expiration.look-ahead:5m}") Duration lookAhead,
+            @Value("${payment.expiration.lease:30s}") Duration lease,
+            @Value("${payment.expiration.pix-ttl:30m}") Duration pixTtl,
+            @Value("${payment.expiration.pending-ttl:24h}") Duration pendingTtl) {
+        if (lookAhead.compareTo(pixTtl) >= 0 || lookAhead.compareTo(pendingTtl) >= 0) {
+            throw new IllegalStateException("payment.expiration.look-ahead must be shorter than every TTL");
+        }
+        if (lease.toMillis() <= refreshMillis) {
+            throw new IllegalStateException("payment.expiration.lease must be longer than the refresh interval");
+        }
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.tickMillis = tickMillis;
+        this.refreshMillis = refreshMillis;
+        this.lookAhead = lookAhead;
+        this.lease = lease;
+        this.wheel = new TimerWheel<>(tickMillis, System.currentTimeMillis());
+        this.loadedUntil = new LocalDateTime[shardRouter.shardCount()];
+    }
+
+    // Waits for readiness so migrations have created the lease rows
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::refresh, 0, refreshMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::fireDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        for (int shard = 0; shard < loadedUntil.length; shard++) {
+            try {
+                refresh(shard);
+            } catch (Exception e) {
+                // Deadlines already in the wheel keep firing; the next refresh tries again
+                log.warn("Could not refresh payment deadlines on shard {}", shard, e);
+            }
+        }
+    }
+
+    private void refresh(int shard) {
+        if (!holdLease(shard)) {
+            if (loadedUntil[shard] != null) {
+                log.info("Payment expiration on shard {} was taken over by another node", shard);
+                wheel.removeIf(id -> shardRouter.shardOfId(id) == shard);
+                loadedUntil[shard] = null;
+            }
+            return;
+        }
+
+        // A new owner starts from the beginning, picking up whatever was overdue while nobody was
+        LocalDateTime from = loadedUntil[shard] == null ? BEGINNING : loadedUntil[shard];
+        LocalDateTime until = LocalDateTime.now().plus(lookAhead);
+        List<PaymentRepository.Deadline> deadlines =
+            shardRouter.onShard(shard, () -> paymentRepository.findDeadlines(from, until));
+        for (PaymentRepository.Deadline deadline : deadlines) {
+            wheel.schedule(deadline.getId(), toMillis(deadline.getExpiresAt()));
+        }
+        if (loadedUntil[shard] == null) {
+            log.info("Took over payment expiration on shard {} with {} deadlines due", shard, deadlines.size());
+        }
+        loadedUntil[shard] = until;
+    }
+
+    private void fireDue() {
+        for (UUID paymentId : wheel.advance(System.currentTimeMillis())) {
+            try {
+                paymentService.expirePayment(paymentId);
+            } catch (EntityNotFoundException e) {
+                // Deleted, or moved to a shard whose owner has the deadline now
+            } catch (Exception e) {
+                log.warn("Could not expire payment {}, retrying in {} ms", paymentId, refreshMillis, e);
+                wheel.schedule(paymentId, System.currentTimeMillis() + refreshMillis);
+            }
+        }
+    }
+
+    // Taken over once the holder has failed to renew it for a whole lease
+    private boolean holdLease(int shard) {
+        return shardRouter.onShard(shard, () -> jdbcTemplate.update(
+            "UPDATE scheduler_leases SET owner = ?, expires_at = now() + ? * INTERVAL '1 millisecond' " +
+                "WHERE name = ? AND (owner = ? OR expires_at IS NULL OR expires_at < now())",
+            owner, lease.toMillis(), LEASE, owner)) == 1;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        // Lets another node take over right away instead of after the lease runs out
+        for (int shard = 0; shard < loadedUntil.length; shard++) {
+            if (loadedUntil[shard] != null) {
+                try {
+                    shardRouter.onShard(shard, () -> jdbcTemplate.update(
+                        "UPDATE scheduler_leases SET owner = NULL, expires_at = NULL WHERE name = ? AND owner = ?",
+                        LEASE, owner));
+                } catch (Exception e) {
+                    log.warn("Could not release the payment expiration lease on shard {}", shard, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.event.PaymentStatusChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Appends committed status transitions to {@code payment_status_history} from a background
+ * thread in JDBC batches, keeping the insert off the payment hot path. When the queue is full
+ * the caller writes its row synchronously rather than dropping it, and shutdown drains the queue.
+ */
+@Slf4j
+@Service
+public class PaymentHistoryWriter {
+    private static final String INSERT_HISTORY =
+        "INSERT INTO payment_status_history (payment_id, from_status, to_status, actor, source, occurred_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate requiresNew;
+    private final BlockingQueue<PaymentStatusChangedEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    public PaymentHistoryWriter(
+            JdbcTemplate jdbcTemplate,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${payment.history.queue-capacity:10000}") int queueCapacity,
+            @Value("${payment.history.batch-size:500}") int batchSize,
+            @Value("${payment.history.flush-interval:200}") long flushIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        // The synchronous fallback runs in AFTER_COMMIT, where the finished transaction's
+        // connection is still bound; joining it would leave the rows uncommitted
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flusher = WorkloadContext.backgroundThreads("payment-history-writer-").newThread(this::flushLoop);
+        Gauge.builder("payment.history.queue", queue, BlockingQueue::size)
+            .description("Status transitions waiting to be written")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        if (!running || !queue.offer(event)) {
+            write(List.of(event));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+
+        List<PaymentStatusChangedEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+        log.info("Payment history writer stopped, flushed {} pending transitions on shutdown", remaining.size());
+    }
+
+    private void flushLoop() {
+        List<PaymentStatusChangedEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PaymentStatusChangedEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        // A batch interrupted while backing off gets one last attempt before the shutdown drain
+        if (!batch.isEmpty()) {
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.error("Lost {} payment history rows on shutdown", batch.size(), e);
+            }
+        }
+    }
+
+    private void writeWithRetry(List<PaymentStatusChangedEvent> batch) throws InterruptedException {
+        long backoff = 100;
+        while (true) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    throw e;
+                }
+                log.warn("Failed to write {} payment history rows, retrying in {} ms", batch.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 5_000);
+            }
+        }
+    }
+
+    // History rows live on the shard of the payment's user, so a batch is split by shard. A user
+    // whose bucket is being moved fails the whole batch before any of it is written, and it is retried.
+    private void write(List<PaymentStatusChangedEvent> events) {
+        Map<Integer, List<PaymentStatusChangedEvent>> byShard = events.stream()
+            .collect(Collectors.groupingBy(event -> shardRouter.shardForWrite(event.userId())));
+        byShard.forEach((shard, shardEvents) -> shardRouter.onShard(shard, () -> requiresNew.execute(status ->
+            jdbcTemplate.batchUpdate(INSERT_HISTORY, shardEvents, shardEvents.size(), (statement, event) -> {
+                statement.setObject(1, event.payment().getId());
+                statement.setString(2, event.previousStatus() == null ? null : event.previousStatus().name());
+                statement.setString(3, event.payment().getStatus().name());
+                statement.setString(4, event.actor());
+                statement.setString(5, event.source().name());
+                statement.setTimestamp(6, Timestamp.valueOf(event.occurredAt()));
+            }))));
+    }
+}
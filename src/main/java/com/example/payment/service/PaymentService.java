@@ -1,19 +1,40 @@
 package com.example.payment.service;
 
+import com.example.payment.config.ShardKeyType;
+import com.example.payment.config.Sharded;
 import com.example.payment.dto.CreatePaymentRequest;
 import com.example.payment.dto.PaymentDTO;
+import com.example.payment.dto.PaymentStatusHistoryDTO;
+import com.example.payment.event.PaymentStatusChangedEvent;
+import com.example.payment.exception.ErrorCode;
+import com.example.payment.exception.PaymentErrorReporter;
+import com.example.payment.exception.PaymentProcessingException;
+import com.example.payment.jfr.StageEvent;
 import com.example.payment.model.Payment;
+import com.example.payment.model.PaymentMethod;
 import com.example.payment.model.PaymentStatus;
+import com.example.payment.model.PaymentStatusHistory;
+import com.example.payment.model.ProviderRetry;
+import com.example.payment.model.RetryOperation;
+import com.example.payment.model.StatusChangeSource;
 import com.example.payment.model.User;
 import com.example.payment.repository.PaymentRepository;
+import com.example.payment.repository.PaymentStatusHistoryRepository;
 import com.example.payment.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -25,14 +46,42 @@ import java.util.stream.Collectors;
 public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
+    // Provider clients are created on first use (or by ProviderWarmup) to keep them off the startup path
+    @Lazy
     private final StripeService stripeService;
+    @Lazy
     private final PayPalService payPalService;
+    @Lazy
     private final PixService pixService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProviderRetryService providerRetryService;
+    private final PaymentStatusHistoryRepository paymentStatusHistoryRepository;
+    private final AuditorAware<String> auditorAware;
+    private final RiskService riskService;
+    private final FxRateService fxRateService;
+    private final ShardRouter shardRouter;
+    private final ProviderErrorClassifier errorClassifier;
+    private final PaymentErrorReporter errorReporter;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    @Value("${payment.expiration.pix-ttl:30m}")
+    private Duration pixTtl;
+
+    @Value("${payment.expiration.pending-ttl:24h}")
+    private Duration pendingTtl;
+
+    // The FAILED status must survive the exception thrown to the caller
+    @Sharded(ShardKeyType.USER)
+    @Transactional(noRollbackFor = PaymentProcessingException.class)
+    @CachePut(value = "payments", key = "#result.id")
     public PaymentDTO createPayment(UUID userId, CreatePaymentRequest request) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new EntityNotFoundException("User not found"));
+        User user = StageEvent.record(StageEvent.CREATE, "user-lookup", null, request.getPaymentMethod(), () ->
+            userRepository.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found")));
+
+        // Runs before the provider is involved, so declined attempts cost nothing downstream
+        RiskService.Assessment assessment = StageEvent.record(StageEvent.CREATE, "risk", null, request.getPaymentMethod(), () ->
+            riskService.assess(userId, request.getAmount()));
 
         Payment payment = new Payment();
         payment.setAmount(request.getAmount());
@@ -41,31 +90,56 @@ public class PaymentService {
         payment.setDescription(request.getDescription());
         payment.setStatus(PaymentStatus.PENDING);
         payment.setUser(user);
+        payment.setRiskDecision(assessment.decision());
+        payment.setRiskReason(assessment.reason());
+        payment.setExpiresAt(LocalDateTime.now().plus(
+            request.getPaymentMethod() == PaymentMethod.PIX ? pixTtl : pendingTtl));
 
         Payment savedPayment = paymentRepository.save(payment);
+        publishStatusChange(savedPayment, null, StatusChangeSource.API);
+
+        if (assessment.isDeclined()) {
+            savedPayment.setStatus(PaymentStatus.FAILED);
+            savedPayment.setErrorMessage("Declined by risk checks: " + assessment.reason());
+            publishStatusChange(paymentRepository.save(savedPayment), PaymentStatus.PENDING, StatusChangeSource.API);
+            throw new PaymentProcessingException(
+                ErrorCode.RISK_DECLINED, null, "Payment declined: " + assessment.reason(), null);
+        }
 
         // Process payment based on method
         try {
-            String externalReference = switch (request.getPaymentMethod()) {
-                case CREDIT_CARD -> stripeService.processPayment(savedPayment);
-                case PAYPAL -> payPalService.processPayment(savedPayment);
-                case PIX -> pixService.processPayment(savedPayment);
-            };
+            Payment pending = savedPayment;
+            String externalReference = StageEvent.record(
+                StageEvent.CREATE, "provider", pending.getId(), pending.getPaymentMethod(), () -> processWithProvider(pending));
             
             savedPayment.setExternalReference(externalReference);
             savedPayment.setStatus(PaymentStatus.PROCESSING);
             savedPayment = paymentRepository.save(savedPayment);
+            riskService.recordOutcome(userId, true);
             
-            return convertToDTO(savedPayment);
+            return publishStatusChange(savedPayment, PaymentStatus.PENDING, StatusChangeSource.API);
         } catch (Exception e) {
-            log.error("Payment processing failed", e);
+            PaymentProcessingException failure =
+                errorClassifier.toException(savedPayment.getPaymentMethod(), "Payment processing failed", e);
+            if (failure.isRetryable()) {
+                // Stays PENDING; the retry worker finishes it and subscribers see the transition
+                errorReporter.report(failure, "retry scheduled for payment " + savedPayment.getId());
+                savedPayment.setErrorMessage(e.getMessage());
+                // Flushed like publishStatusChange so the returned updatedAt (ETag, event id) is current
+                savedPayment = paymentRepository.saveAndFlush(savedPayment);
+                providerRetryService.schedule(savedPayment, RetryOperation.CREATE_PAYMENT, e);
+                return convertToDTO(savedPayment);
+            }
+            // Logged once, by GlobalExceptionHandler
+            riskService.recordOutcome(userId, false);
             savedPayment.setStatus(PaymentStatus.FAILED);
             savedPayment.setErrorMessage(e.getMessage());
-            paymentRepository.save(savedPayment);
-            throw new PaymentProcessingException("Payment processing failed: " + e.getMessage());
+            publishStatusChange(paymentRepository.save(savedPayment), PaymentStatus.PENDING, StatusChangeSource.API);
+            throw failure;
         }
     }
 
+    @Sharded(ShardKeyType.PAYMENT)
     @Transactional(readOnly = true)
     @Cacheable(value = "payments", key = "#id")
     public PaymentDTO getPayment(UUID id) {
@@ -74,6 +148,31 @@ public class PaymentService {
             .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
     }
 
+    // Bypasses the cache for callers that must not see a state older than the last commit
+    @Sharded(ShardKeyType.PAYMENT)
+    @Transactional(readOnly = true)
+    public PaymentDTO getCurrentPayment(UUID id) {
+        return paymentRepository.findById(id)
+            .map(this::convertToDTO)
+            .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
+    }
+
+    // Cheap single-column lookup used to answer conditional GETs without loading the payment
+    @Sharded(ShardKeyType.PAYMENT)
+    @Transactional(readOnly = true)
+    public LocalDateTime getPaymentUpdatedAt(UUID id) {
+        return paymentRepository.findUpdatedAtById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
+    }
+
+    @Sharded(ShardKeyType.PAYMENT)
+    @Transactional(readOnly = true)
+    public UUID getPaymentOwner(UUID id) {
+        return paymentRepository.findUserIdById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
+    }
+
+    @Sharded(ShardKeyType.USER)
     @Transactional(readOnly = true)
     public List<PaymentDTO> getUserPayments(UUID userId) {
         return paymentRepository.findByUserId(userId).stream()
@@ -81,45 +180,213 @@ public class PaymentService {
             .collect(Collectors.toList());
     }
 
-    @Transactional
+    // Status is not a shard key, so every shard is queried in parallel
+    public List<PaymentDTO> getPaymentsByStatus(PaymentStatus status) {
+        return shardRouter.scatter(() -> paymentRepository.findByStatus(status).stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Marks the payment the provider knows as {@code externalReference} as paid. A repeated
+     * confirmation returns the payment unchanged; a payment that has already failed, been
+     * canceled, expired or been refunded cannot be confirmed.
+     */
+    @CachePut(value = "payments", key = "#result.id")
     public PaymentDTO confirmPayment(String externalReference) {
-        Payment payment = paymentRepository.findByExternalReference(externalReference)
-            .stream()
-            .findFirst()
+        // The provider's reference is not a shard key, so the payment and its owner are found first
+        PaymentRepository.PaymentKey key = shardRouter.findFirst(() ->
+                paymentRepository.findKeyByExternalReference(externalReference).stream().findFirst())
             .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
+        return shardRouter.onUser(key.getUserId(), () -> transactionTemplate.execute(status -> confirm(key.getId())));
+    }
+
+    private PaymentDTO confirm(UUID id) {
+        Payment payment = StageEvent.record(StageEvent.CONFIRM, "load", id, null, () ->
+            paymentRepository.findByIdForUpdate(id).orElseThrow(() -> new EntityNotFoundException("Payment not found")));
 
+        PaymentStatus previousStatus = payment.getStatus();
+        if (previousStatus == PaymentStatus.COMPLETED) {
+            return convertToDTO(payment);
+        }
+        if (previousStatus != PaymentStatus.PENDING && previousStatus != PaymentStatus.PROCESSING) {
+            throw new IllegalStateException("Payment cannot be confirmed");
+        }
         payment.setStatus(PaymentStatus.COMPLETED);
         payment.setPaidAt(LocalDateTime.now());
         Payment savedPayment = paymentRepository.save(payment);
 
-        return convertToDTO(savedPayment);
+        return publishStatusChange(savedPayment, previousStatus, StatusChangeSource.WEBHOOK);
     }
 
+    /**
+     * Moves a payment to EXPIRED once its {@code expiresAt} has passed. Only a PENDING payment, or
+     * a PIX payment still PROCESSING while it waits for the payer, can expire; a transition to any
+     * other status clears {@code expiresAt}. Deadlines are fired without checking that they still apply, so a
+     * payment that has moved on, or whose deadline is not due yet, is returned unchanged.
+     */
+    @Sharded(ShardKeyType.PAYMENT)
     @Transactional
-    public PaymentDTO refundPayment(UUID id) {
-        Payment payment = paymentRepository.findById(id)
+    @CachePut(value = "payments", key = "#result.id")
+    public PaymentDTO expirePayment(UUID id) {
+        Payment payment = paymentRepository.findByIdForUpdate(id)
             .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
 
+        LocalDateTime now = LocalDateTime.now();
+        if (!canExpire(payment) || payment.getExpiresAt() == null || payment.getExpiresAt().isAfter(now)) {
+            return convertToDTO(payment);
+        }
+        PaymentStatus previousStatus = payment.getStatus();
+        payment.setStatus(PaymentStatus.EXPIRED);
+        payment.setCanceledAt(now);
+        return publishStatusChange(paymentRepository.save(payment), previousStatus, StatusChangeSource.RECONCILER);
+    }
+
+    @Sharded(ShardKeyType.PAYMENT)
+    @Transactional(noRollbackFor = PaymentProcessingException.class)
+    @CachePut(value = "payments", key = "#result.id")
+    public PaymentDTO refundPayment(UUID id) {
+        Payment payment = StageEvent.record(StageEvent.REFUND, "load", id, null, () ->
+            paymentRepository.findByIdForUpdate(id).orElseThrow(() -> new EntityNotFoundException("Payment not found")));
+
         if (payment.getStatus() != PaymentStatus.COMPLETED) {
             throw new IllegalStateException("Payment cannot be refunded");
         }
 
         try {
-            switch (payment.getPaymentMethod()) {
-                case CREDIT_CARD -> stripeService.refundPayment(payment);
-                case PAYPAL -> payPalService.refundPayment(payment);
-                case PIX -> pixService.refundPayment(payment);
-            }
+            StageEvent.record(StageEvent.REFUND, "provider", id, payment.getPaymentMethod(), () -> {
+                refundWithProvider(payment);
+                return null;
+            });
 
             payment.setStatus(PaymentStatus.REFUNDED);
             payment.setRefundedAt(LocalDateTime.now());
             Payment savedPayment = paymentRepository.save(payment);
 
-            return convertToDTO(savedPayment);
+            return publishStatusChange(savedPayment, PaymentStatus.COMPLETED, StatusChangeSource.API);
         } catch (Exception e) {
-            log.error("Refund processing failed", e);
-            throw new PaymentProcessingException("Refund processing failed: " + e.getMessage());
+            PaymentProcessingException failure =
+                errorClassifier.toException(payment.getPaymentMethod(), "Refund processing failed", e);
+            if (failure.isRetryable()) {
+                errorReporter.report(failure, "retry scheduled for refund of payment " + payment.getId());
+                payment.setErrorMessage("Refund scheduled for retry: " + e.getMessage());
+                Payment savedPayment = paymentRepository.saveAndFlush(payment);
+                providerRetryService.schedule(savedPayment, RetryOperation.REFUND_PAYMENT, e);
+                return convertToDTO(savedPayment);
+            }
+            throw failure;
+        }
+    }
+
+    @Transactional
+    @CachePut(value = "payments", key = "#result.id")
+    public PaymentDTO retryProviderOperation(UUID retryId) {
+        ProviderRetry retry = providerRetryService.getRetry(retryId);
+        // Locked so a webhook or refund racing the retry sees the status this transaction leaves behind
+        Payment payment = paymentRepository.findByIdForUpdate(retry.getPayment().getId())
+            .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
+
+        // The payment may have moved on through a webhook or a manual action since the retry was queued
+        PaymentStatus expected = retry.getOperation() == RetryOperation.CREATE_PAYMENT
+            ? PaymentStatus.PENDING
+            : PaymentStatus.COMPLETED;
+        if (payment.getStatus() != expected) {
+            providerRetryService.markSucceeded(retry);
+            return convertToDTO(payment);
+        }
+
+        try {
+            switch (retry.getOperation()) {
+                case CREATE_PAYMENT -> {
+                    payment.setExternalReference(processWithProvider(payment));
+                    payment.setStatus(PaymentStatus.PROCESSING);
+                }
+                case REFUND_PAYMENT -> {
+                    refundWithProvider(payment);
+                    payment.setStatus(PaymentStatus.REFUNDED);
+                    payment.setRefundedAt(LocalDateTime.now());
+                }
+            }
+            payment.setErrorMessage(null);
+            Payment savedPayment = paymentRepository.save(payment);
+            providerRetryService.markSucceeded(retry);
+            return publishStatusChange(savedPayment, expected, StatusChangeSource.RECONCILER);
+        } catch (Exception e) {
+            if (providerRetryService.recordFailure(retry, e)) {
+                payment.setErrorMessage(e.getMessage());
+                return convertToDTO(paymentRepository.saveAndFlush(payment));
+            }
+            if (retry.getOperation() == RetryOperation.CREATE_PAYMENT) {
+                payment.setStatus(PaymentStatus.FAILED);
+                payment.setErrorMessage(e.getMessage());
+                return publishStatusChange(paymentRepository.save(payment), expected, StatusChangeSource.RECONCILER);
+            }
+            payment.setErrorMessage("Refund failed: " + e.getMessage());
+            return convertToDTO(paymentRepository.saveAndFlush(payment));
+        }
+    }
+
+    private String processWithProvider(Payment payment) {
+        return switch (payment.getPaymentMethod()) {
+            case CREDIT_CARD -> stripeService.processPayment(payment);
+            case PAYPAL -> payPalService.processPayment(payment);
+            case PIX -> {
+                PixService.PixCharge charge = pixService.processPayment(payment);
+                payment.setPixCode(charge.brCode());
+                yield charge.txid();
+            }
+        };
+    }
+
+    private void refundWithProvider(Payment payment) {
+        switch (payment.getPaymentMethod()) {
+            case CREDIT_CARD -> stripeService.refundPayment(payment);
+            case PAYPAL -> payPalService.refundPayment(payment);
+            case PIX -> pixService.refundPayment(payment);
+        }
+    }
+
+    @Sharded(ShardKeyType.PAYMENT)
+    @Transactional(readOnly = true)
+    public List<PaymentStatusHistoryDTO> getPaymentHistory(UUID id) {
+        if (!paymentRepository.existsById(id)) {
+            throw new EntityNotFoundException("Payment not found");
+        }
+        return paymentStatusHistoryRepository.findByPaymentIdOrderByOccurredAtAscIdAsc(id).stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList());
+    }
+
+    // Unpaid PIX charges wait for the payer in PROCESSING; everything else can only be abandoned while PENDING
+    private static boolean canExpire(Payment payment) {
+        return payment.getStatus() == PaymentStatus.PENDING
+            || payment.getStatus() == PaymentStatus.PROCESSING && payment.getPaymentMethod() == PaymentMethod.PIX;
+    }
+
+    // Listeners (event streams, status history) are notified once the surrounding transaction commits
+    private PaymentDTO publishStatusChange(Payment payment, PaymentStatus previousStatus, StatusChangeSource source) {
+        // Every transition passes here, so this keeps finished payments out of the expiration index
+        if (!canExpire(payment)) {
+            payment.setExpiresAt(null);
         }
+        ledgerService.post(payment, previousStatus);
+        // Flushing assigns updatedAt, which the DTO's ETag and event id are derived from
+        paymentRepository.flush();
+        PaymentDTO dto = convertToDTO(payment);
+        String actor = auditorAware.getCurrentAuditor().orElse("system");
+        eventPublisher.publishEvent(new PaymentStatusChangedEvent(
+            payment.getUser().getId(), dto, previousStatus, actor, source, LocalDateTime.now()));
+        return dto;
+    }
+
+    private PaymentStatusHistoryDTO convertToDTO(PaymentStatusHistory history) {
+        PaymentStatusHistoryDTO dto = new PaymentStatusHistoryDTO();
+        dto.setFromStatus(history.getFromStatus());
+        dto.setToStatus(history.getToStatus());
+        dto.setActor(history.getActor());
+        dto.setSource(history.getSource());
+        dto.setOccurredAt(history.getOccurredAt());
+        return dto;
     }
 
     private PaymentDTO convertToDTO(Payment payment) {
@@ -132,10 +399,17 @@ public class PaymentService {
         dto.setDescription(payment.getDescription());
         dto.setExternalReference(payment.getExternalReference());
         dto.setCreatedAt(payment.getCreatedAt());
+        dto.setUpdatedAt(payment.getUpdatedAt());
         dto.setPaidAt(payment.getPaidAt());
         dto.setCanceledAt(payment.getCanceledAt());
         dto.setRefundedAt(payment.getRefundedAt());
+        dto.setExpiresAt(payment.getExpiresAt());
         dto.setErrorMessage(payment.getErrorMessage());
+        dto.setRiskDecision(payment.getRiskDecision());
+        dto.setRiskReason(payment.getRiskReason());
+        dto.setPixCode(payment.getPixCode());
+        dto.setReportingAmounts(fxRateService.toReportingCurrencies(
+            payment.getAmount(), payment.getCurrency(), payment.getCreatedAt()));
         return dto;
     }
 }
\ No newline at end of file
@@ -1,36 +1,76 @@
 package com.example.payment.service;
 
 import com.example.payment.model.Payment;
+import com.example.payment.model.PaymentMethod;
+import com.example.payment.util.BrCodeTemplate;
+import com.example.payment.util.QrCodeRenderer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 @Slf4j
+@Lazy
 @Service
 @RequiredArgsConstructor
 public class PixService {
     @Value("${payment.pix.api-key}")
     private String apiKey;
 
-    public String processPayment(Payment payment) {
+    @Value("${payment.pix.merchant.key}")
+    private String merchantKey;
+
+    @Value("${payment.pix.merchant.name}")
+    private String merchantName;
+
+    @Value("${payment.pix.merchant.city}")
+    private String merchantCity;
+
+    @Value("${payment.pix.qr-module-size:6}")
+    private int qrModuleSize;
+
+    private final ProviderErrorClassifier errorClassifier;
+
+    private BrCodeTemplate brCodeTemplate;
+
+    public record PixCharge(String txid, String brCode) {
+    }
+
+    @PostConstruct
+    public void init() {
+        brCodeTemplate = new BrCodeTemplate(merchantKey, merchantName, merchantCity);
+    }
+
+    /**
+     * Creates the charge for a payment: its transaction id, which becomes the external reference
+     * that PIX webhooks are matched on, and the BR Code the payer scans or pastes.
+     */
+    public PixCharge processPayment(Payment payment) {
         try {
-            // Implement PIX payment generation logic
-            log.info("Processing PIX payment: {}", payment.getId());
-            return "PIX_" + payment.getId().toString();
+            if (!"BRL".equalsIgnoreCase(payment.getCurrency())) {
+                throw new IllegalArgumentException("PIX charges must be in BRL");
+            }
+            long amountInCents = payment.getAmount().movePointRight(2).longValueExact();
+            return new PixCharge(
+                BrCodeTemplate.txid(payment.getId()),
+                brCodeTemplate.payload(amountInCents, payment.getId()));
         } catch (Exception e) {
-            log.error("PIX payment processing failed", e);
-            throw new PaymentProcessingException("PIX payment failed: " + e.getMessage());
+            throw errorClassifier.toException(PaymentMethod.PIX, "PIX payment failed", e);
         }
     }
 
+    public byte[] renderQrCode(String brCode) {
+        return QrCodeRenderer.png(brCode, qrModuleSize);
+    }
+
     public void refundPayment(Payment payment) {
         try {
             // Implement PIX refund logic
             log.info("Processing PIX refund for payment: {}", payment.getId());
         } catch (Exception e) {
-            log.error("PIX refund processing failed", e);
-            throw new PaymentProcessingException("PIX refund failed: " + e.getMessage());
+            throw errorClassifier.toException(PaymentMethod.PIX, "PIX refund failed", e);
         }
     }
 
@@ -38,4 +78,4 @@ public class PixService {
         // Implement webhook handling logic
         log.info("Processing PIX webhook");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.example.payment.service;
+
+import com.example.payment.exception.ErrorCode;
+import com.example.payment.exception.PaymentProcessingException;
+import com.example.payment.model.PaymentMethod;
+import com.paypal.http.exceptions.HttpException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Classifies provider failures. Network trouble, throttling and provider-side 5xx errors are
+ * transient; declines and invalid requests are terminal.
+ */
+@Component
+public class ProviderErrorClassifier {
+
+    public boolean isRetryable(PaymentMethod provider, Throwable error) {
+        return classify(provider, error).isRetryable();
+    }
+
+    public ErrorCode classify(PaymentMethod provider, Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            // Already classified where the provider call failed
+            if (cause instanceof PaymentProcessingException classified && classified.getProvider() != null) {
+                return classified.getErrorCode();
+            }
+            ErrorCode code = switch (provider) {
+                case CREDIT_CARD -> classifyStripe(cause);
+                case PAYPAL -> classifyPayPal(cause);
+                case PIX -> classifyPix(cause);
+            };
+            if (code != null) {
+                return code;
+            }
+        }
+        return ErrorCode.PROVIDER_ERROR;
+    }
+
+    /**
+     * Wraps a failed provider call as {@code "<message>: <cause message>"}, carrying its
+     * classification.
+     */
+    public PaymentProcessingException toException(PaymentMethod provider, String message, Throwable error) {
+        return new PaymentProcessingException(
+            classify(provider, error), provider, message + ": " + error.getMessage(), error);
+    }
+
+    private ErrorCode classifyStripe(Throwable error) {
+        if (error instanceof ApiConnectionException) {
+            return ErrorCode.PROVIDER_UNAVAILABLE;
+        }
+        if (error instanceof RateLimitException) {
+            return ErrorCode.PROVIDER_RATE_LIMITED;
+        }
+        if (error instanceof ApiException apiException) {
+            return apiException.getStatusCode() == null || apiException.getStatusCode() >= 500
+                ? ErrorCode.PROVIDER_UNAVAILABLE
+                : ErrorCode.PROVIDER_REJECTED;
+        }
+        if (error instanceof StripeException) {
+            return ErrorCode.PROVIDER_REJECTED;
+        }
+        return null;
+    }
+
+    private ErrorCode classifyPayPal(Throwable error) {
+        if (error instanceof HttpException httpException) {
+            int status = httpException.statusCode();
+            if (status == 429) {
+                return ErrorCode.PROVIDER_RATE_LIMITED;
+            }
+            return status >= 500 ? ErrorCode.PROVIDER_UNAVAILABLE : ErrorCode.PROVIDER_REJECTED;
+        }
+        if (error instanceof IOException) {
+            return ErrorCode.PROVIDER_UNAVAILABLE;
+        }
+        return null;
+    }
+
+    private ErrorCode classifyPix(Throwable error) {
+        if (error instanceof IOException) {
+            return ErrorCode.PROVIDER_UNAVAILABLE;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.payment.service;
+
+import com.example.payment.exception.PaymentErrorReporter;
+import com.example.payment.exception.PaymentProcessingException;
+import com.example.payment.model.Payment;
+import com.example.payment.model.PaymentMethod;
+import com.example.payment.model.ProviderRetry;
+import com.example.payment.model.RetryOperation;
+import com.example.payment.model.RetryStatus;
+import com.example.payment.repository.ProviderRetryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable queue of provider calls that failed with a transient error. Retries are claimed with
+ * {@code FOR UPDATE SKIP LOCKED} under a lease, so any number of nodes can drain the queue
+ * without double-processing, and backoff uses full jitter so recovering providers are not stampeded.
+ */
+@Service
+public class ProviderRetryService {
+    private static final List<RetryStatus> OPEN_STATUSES = List.of(RetryStatus.PENDING, RetryStatus.IN_PROGRESS);
+
+    private final ProviderRetryRepository providerRetryRepository;
+    private final ProviderErrorClassifier errorClassifier;
+    private final PaymentErrorReporter errorReporter;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+
+    private final Map<PaymentMethod, AtomicLong> queueDepth = new EnumMap<>(PaymentMethod.class);
+    private final Map<PaymentMethod, AtomicLong> oldestAgeSeconds = new EnumMap<>(PaymentMethod.class);
+
+    @Value("${payment.retry.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${payment.retry.base-delay:2s}")
+    private Duration baseDelay;
+
+    @Value("${payment.retry.max-delay:10m}")
+    private Duration maxDelay;
+
+    @Value("${payment.retry.lease:2m}")
+    private Duration lease;
+
+    public ProviderRetryService(
+            ProviderRetryRepository providerRetryRepository,
+            ProviderErrorClassifier errorClassifier,
+            PaymentErrorReporter errorReporter,
+            MeterRegistry meterRegistry,
+            ShardRouter shardRouter) {
+        this.providerRetryRepository = providerRetryRepository;
+        this.errorClassifier = errorClassifier;
+        this.errorReporter = errorReporter;
+        this.meterRegistry = meterRegistry;
+        this.shardRouter = shardRouter;
+        for (PaymentMethod provider : PaymentMethod.values()) {
+            queueDepth.put(provider, new AtomicLong());
+            oldestAgeSeconds.put(provider, new AtomicLong());
+            Gauge.builder("payment.retry.queue.depth", queueDepth.get(provider), AtomicLong::get)
+                .tag("provider", provider.name())
+                .description("Provider retries waiting or in progress")
+                .register(meterRegistry);
+            Gauge.builder("payment.retry.oldest.age", oldestAgeSeconds.get(provider), AtomicLong::get)
+                .tag("provider", provider.name())
+                .baseUnit("seconds")
+                .description("Age of the oldest open provider retry")
+                .register(meterRegistry);
+        }
+    }
+
+    public boolean isRetryable(PaymentMethod provider, Throwable error) {
+        return errorClassifier.isRetryable(provider, error);
+    }
+
+    @Transactional
+    public void schedule(Payment payment, RetryOperation operation, Throwable error) {
+        if (providerRetryRepository.existsByPaymentIdAndOperationAndStatusIn(payment.getId(), operation, OPEN_STATUSES)) {
+            return;
+        }
+        ProviderRetry retry = new ProviderRetry();
+        retry.setPayment(payment);
+        retry.setProvider(payment.getPaymentMethod());
+        retry.setOperation(operation);
+        retry.setStatus(RetryStatus.PENDING);
+        retry.setAttempts(1);
+        retry.setNextAttemptAt(LocalDateTime.now().plus(backoff(1)));
+        retry.setLastError(truncate(error.getMessage()));
+        providerRetryRepository.save(retry);
+    }
+
+    // The payment id routes the attempt, since the retry's bucket may move between claim and attempt
+    public record Claim(UUID retryId, UUID paymentId) {
+    }
+
+    @Transactional
+    public List<Claim> claimDue(PaymentMethod provider, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ProviderRetry> due = providerRetryRepository.findDueForUpdate(provider.name(), now, limit);
+        due.forEach(retry -> {
+            retry.setStatus(RetryStatus.IN_PROGRESS);
+            retry.setLockedUntil(now.plus(lease));
+        });
+        return due.stream().map(retry -> new Claim(retry.getId(), retry.getPayment().getId())).toList();
+    }
+
+    public ProviderRetry getRetry(UUID id) {
+        return providerRetryRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Provider retry not found"));
+    }
+
+    public void markSucceeded(ProviderRetry retry) {
+        retry.setStatus(RetryStatus.SUCCEEDED);
+        retry.setLockedUntil(null);
+        providerRetryRepository.save(retry);
+        count(retry, "succeeded");
+    }
+
+    /**
+     * Records a failed attempt and returns whether another attempt has been scheduled.
+     */
+    public boolean recordFailure(ProviderRetry retry, Throwable error) {
+        retry.setLastError(truncate(error.getMessage()));
+        retry.setLockedUntil(null);
+
+        boolean retryable = isRetryable(retry.getProvider(), error);
+        if (retryable && retry.getAttempts() < maxAttempts) {
+            retry.setAttempts(retry.getAttempts() + 1);
+            retry.setStatus(RetryStatus.PENDING);
+            retry.setNextAttemptAt(LocalDateTime.now().plus(backoff(retry.getAttempts())));
+            providerRetryRepository.save(retry);
+            count(retry, "rescheduled");
+            return true;
+        }
+
+        retry.setStatus(RetryStatus.FAILED);
+        providerRetryRepository.save(retry);
+        count(retry, retryable ? "exhausted" : "terminal");
+        PaymentProcessingException failure = errorClassifier.toException(retry.getProvider(),
+            retry.getOperation() == RetryOperation.CREATE_PAYMENT ? "Payment processing failed" : "Refund processing failed",
+            error);
+        errorReporter.report(failure, "gave up on payment " + retry.getPayment().getId()
+            + " after " + retry.getAttempts() + " attempts");
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.retry.metrics-interval:15000}")
+    public void refreshQueueMetrics() {
+        Map<PaymentMethod, Long> depths = new EnumMap<>(PaymentMethod.class);
+        Map<PaymentMethod, Long> oldestAges = new EnumMap<>(PaymentMethod.class);
+        LocalDateTime now = LocalDateTime.now();
+        shardRouter.scatter(() -> providerRetryRepository.summarize(OPEN_STATUSES)).forEach(summary -> {
+            depths.merge(summary.getProvider(), summary.getDepth(), Long::sum);
+            if (summary.getOldest() != null) {
+                oldestAges.merge(summary.getProvider(), Duration.between(summary.getOldest(), now).toSeconds(), Math::max);
+            }
+        });
+        queueDepth.forEach((provider, depth) -> depth.set(depths.getOrDefault(provider, 0L)));
+        oldestAgeSeconds.forEach((provider, age) -> age.set(oldestAges.getOrDefault(provider, 0L)));
+    }
+
+    // Full jitter: uniformly random between zero and the capped exponential delay
+    private Duration backoff(int attempt) {
+        long cap = maxDelay.toMillis();
+        long exponential = baseDelay.toMillis() << Math.min(attempt - 1, 30);
+        long bound = Math.max(1, Math.min(cap, exponential));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    private void count(ProviderRetry retry, String outcome) {
+        Counter.builder("payment.retry.attempts")
+            .tag("provider", retry.getProvider().name())
+            .tag("operation", retry.getOperation().name())
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.model.PaymentMethod;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drains due provider retries with a fixed number of in-flight calls per provider, so one
+ * struggling provider cannot absorb the capacity meant for the others.
+ */
+@Slf4j
+@Component
+public class ProviderRetryWorker {
+    private final ProviderRetryService providerRetryService;
+    private final PaymentService paymentService;
+    private final ShardRouter shardRouter;
+    private final Map<PaymentMethod, Semaphore> permits = new EnumMap<>(PaymentMethod.class);
+    private final ExecutorService executor;
+
+    public ProviderRetryWorker(
+            ProviderRetryService providerRetryService,
+            PaymentService paymentService,
+            ShardRouter shardRouter,
+            @Value("${payment.retry.concurrency-per-provider:4}") int concurrencyPerProvider) {
+        this.providerRetryService = providerRetryService;
+        this.paymentService = paymentService;
+        this.shardRouter = shardRouter;
+        for (PaymentMethod provider : PaymentMethod.values()) {
+            permits.put(provider, new Semaphore(concurrencyPerProvider));
+        }
+        this.executor = Executors.newFixedThreadPool(
+            concurrencyPerProvider * PaymentMethod.values().length,
+            WorkloadContext.backgroundThreads("provider-retry-"));
+    }
+
+    @Scheduled(fixedDelayString = "${payment.retry.poll-interval:1000}")
+    public void pollDueRetries() {
+        // Each shard keeps the retries of its own payments; the per-provider permits span all shards
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            pollDueRetries(shard);
+        }
+    }
+
+    private void pollDueRetries(int shard) {
+        for (PaymentMethod provider : PaymentMethod.values()) {
+            Semaphore providerPermits = permits.get(provider);
+            int available = providerPermits.availablePermits();
+            if (available == 0) {
+                continue;
+            }
+
+            List<ProviderRetryService.Claim> claimed;
+            try {
+                claimed = shardRouter.onShard(shard, () -> providerRetryService.claimDue(provider, available));
+            } catch (Exception e) {
+                log.error("Failed to claim {} retries on shard {}", provider, shard, e);
+                continue;
+            }
+
+            for (ProviderRetryService.Claim claim : claimed) {
+                // Only this thread acquires, so the permits counted above are still there
+                providerPermits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        shardRouter.onUser(claim.paymentId(), () -> paymentService.retryProviderOperation(claim.retryId()));
+                    } catch (RejectedExecutionException e) {
+                        // The payment's bucket is being moved; the lease expires and the retry is claimed again
+                        log.debug("Deferred provider retry {}: {}", claim.retryId(), e.getMessage());
+                    } catch (Exception e) {
+                        // The lease expires and another poll picks the retry up again
+                        log.error("Provider retry {} failed unexpectedly", claim.retryId(), e);
+                    } finally {
+                        providerPermits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.payment.service;
+
+import com.example.payment.dto.PaymentTotalsReport;
+import com.example.payment.model.PaymentStatus;
+import com.example.payment.repository.PaymentRepository;
+import com.example.payment.util.FxRateSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Service
+@RequiredArgsConstructor
+public class ReportService {
+    private final PaymentRepository paymentRepository;
+    private final FxRateService fxRateService;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Totals payments created in {@code [from, to)} in the target currency, converting each
+     * currency's daily sum at that day's rate.
+     */
+    public PaymentTotalsReport getPaymentTotals(String currency, LocalDateTime from, LocalDateTime to, PaymentStatus status) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        FxRateSnapshot rates = fxRateService.getSnapshot();
+        int target = rates.indexOf(currency);
+        if (target < 0) {
+            throw new IllegalArgumentException("No FX rates for currency " + currency);
+        }
+
+        // Summed in BigDecimal so a long range of large daily totals does not lose cents to double rounding
+        BigDecimal total = BigDecimal.ZERO;
+        long count = 0;
+        long unconvertedCount = 0;
+        Set<String> unconverted = new TreeSet<>();
+        for (PaymentRepository.DailyTotal day : shardRouter.scatter(() -> paymentRepository.sumByCurrencyAndDay(from, to, status))) {
+            double converted = rates.convert(
+                day.getTotal().doubleValue(), rates.indexOf(day.getCurrency()), target, day.getCreatedOn().toEpochDay());
+            if (Double.isNaN(converted)) {
+                unconverted.add(day.getCurrency());
+                unconvertedCount += day.getPayments();
+            } else {
+                total = total.add(BigDecimal.valueOf(converted));
+                count += day.getPayments();
+            }
+        }
+
+        return new PaymentTotalsReport(
+            currency.toUpperCase(), from, to, status,
+            total.setScale(2, RoundingMode.HALF_EVEN),
+            count, List.copyOf(unconverted), unconvertedCount);
+    }
+}
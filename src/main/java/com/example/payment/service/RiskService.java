@@ -0,0 +1,393 @@
+package com.example.payment.service;
+
+import com.example.payment.dto.RiskRules;
+import com.example.payment.model.RiskDecision;
+import com.example.payment.util.ReloadableResource;
+import com.example.payment.util.SlidingWindowCounter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-dispatch velocity checks for new payments. Limits are enforced per user, per amount bucket
+ * and per streak of failed attempts using in-memory sliding-window counters, so an assessment is
+ * a handful of atomic operations. Per-user attempt totals can optionally be shared across nodes
+ * through Redis; the sync runs in the background and never sits on the create path.
+ */
+@Slf4j
+@Service
+public class RiskService {
+    private static final String CLUSTER_KEY_PREFIX = "risk:attempts:";
+    private static final int GLOBAL_STRIPES = 16;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+    private final ReloadableResource<Engine> engine;
+    // Outlives rule reloads, so attempts, streaks and blocks carry over to new rules
+    private final Map<UUID, UserState> users = new ConcurrentHashMap<>();
+    private final boolean redisSyncEnabled;
+    private final Map<Rule, Counter> declines = new EnumMap<>(Rule.class);
+    private final Counter approvals;
+
+    public RiskService(
+            ResourceLoader resourceLoader,
+            ObjectMapper objectMapper,
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payment.risk.rules-location:classpath:risk-rules.json}") String rulesLocation,
+            @Value("${payment.risk.redis-sync.enabled:false}") boolean redisSyncEnabled) {
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisTemplate;
+        this.engine = new ReloadableResource<>(resourceLoader.getResource(rulesLocation), this::rebuild);
+        this.redisSyncEnabled = redisSyncEnabled;
+        this.approvals = meterRegistry.counter("payment.risk.decisions", "decision", RiskDecision.APPROVED.name(), "rule", "none");
+        for (Rule rule : Rule.values()) {
+            declines.put(rule, meterRegistry.counter("payment.risk.decisions",
+                "decision", RiskDecision.DECLINED.name(), "rule", rule.name()));
+        }
+        Gauge.builder("payment.risk.tracked.users", users, Map::size)
+            .description("Users with live risk counters on this node")
+            .register(meterRegistry);
+    }
+
+    public record Assessment(RiskDecision decision, String reason) {
+        private static final Assessment APPROVED = new Assessment(RiskDecision.APPROVED, null);
+
+        public boolean isDeclined() {
+            return decision == RiskDecision.DECLINED;
+        }
+    }
+
+    private enum Rule {
+        FAILURE_STREAK("Too many failed payment attempts, try again later"),
+        USER_VELOCITY("Too many payment attempts"),
+        AMOUNT_USER_VELOCITY("Too many payment attempts of this size"),
+        AMOUNT_GLOBAL_VELOCITY("Payments of this size are temporarily limited");
+
+        private final String reason;
+
+        Rule(String reason) {
+            this.reason = reason;
+        }
+    }
+
+    @PostConstruct
+    public void loadRules() throws IOException {
+        loaded(engine.load());
+    }
+
+    public RiskRules getRules() {
+        return engine.get().rules;
+    }
+
+    /**
+     * Re-reads the rules file. Counts, failure streaks and blocks are kept; only windows whose
+     * length changed start again from zero.
+     */
+    public RiskRules reloadRules() {
+        try {
+            return loaded(engine.load()).rules;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                "Could not load risk rules from " + engine.getDescription() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.risk.reload-interval:10000}")
+    public void reloadIfChanged() {
+        try {
+            Engine reloaded = engine.reloadIfChanged();
+            if (reloaded != null) {
+                loaded(reloaded);
+            }
+        } catch (IOException e) {
+            // Keep enforcing the previous rules until the file is fixed
+            log.error("Ignoring invalid risk rules in {}: {}", engine.getDescription(), e.getMessage());
+        }
+    }
+
+    /**
+     * Counts the attempt against every applicable window and returns the first limit it breaks.
+     * Declined attempts are counted too, so a client hammering the endpoint stays throttled.
+     */
+    public Assessment assess(UUID userId, BigDecimal amount) {
+        Engine current = engine.get();
+        RiskRules rules = current.rules;
+        long now = System.currentTimeMillis();
+        UserState user = user(userId, rules);
+        Windows windows = user.windowsFor(rules);
+        user.lastSeen = now;
+
+        if (user.blockedUntil > now) {
+            return decline(Rule.FAILURE_STREAK);
+        }
+
+        long attempts = windows.attempts.incrementAndSum(now);
+        if (redisSyncEnabled) {
+            attempts = Math.max(attempts, user.clusterAttempts + user.unsyncedAttempts.incrementAndGet());
+        }
+        if (attempts > rules.maxAttemptsPerUser()) {
+            return decline(Rule.USER_VELOCITY);
+        }
+
+        int bucket = rules.bucketFor(amount);
+        if (bucket >= 0) {
+            RiskRules.AmountBucket limits = rules.amountBuckets().get(bucket);
+            if (windows.amountAttempts[bucket].incrementAndSum(now) > limits.maxAttemptsPerUser()) {
+                return decline(Rule.AMOUNT_USER_VELOCITY);
+            }
+            if (current.globalAmountAttempts[bucket].incrementAndSum(now) > limits.maxAttemptsGlobal()) {
+                return decline(Rule.AMOUNT_GLOBAL_VELOCITY);
+            }
+        }
+
+        approvals.increment();
+        return Assessment.APPROVED;
+    }
+
+    /**
+     * Feeds provider outcomes into the failed-attempt streak. Reaching the streak limit blocks
+     * the user for the configured cooldown; any success resets the streak.
+     */
+    public void recordOutcome(UUID userId, boolean succeeded) {
+        Engine current = engine.get();
+        UserState user = users.get(userId);
+        if (user == null) {
+            return;
+        }
+        if (succeeded) {
+            user.failureStreak.set(0);
+            return;
+        }
+        if (user.failureStreak.incrementAndGet() >= current.rules.maxFailureStreak()) {
+            user.failureStreak.set(0);
+            user.blockedUntil = System.currentTimeMillis() + current.rules.failureCooldown().toMillis();
+            log.warn("User {} blocked for {} after {} consecutive failed payments",
+                userId, current.rules.failureCooldown(), current.rules.maxFailureStreak());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.risk.eviction-interval:60000}")
+    public void evictIdleUsers() {
+        Engine current = engine.get();
+        long now = System.currentTimeMillis();
+        long cutoff = now - current.rules.longestWindow().toMillis();
+        users.values().removeIf(user -> user.lastSeen < cutoff && user.blockedUntil < now);
+    }
+
+    /**
+     * Publishes this node's new attempts to per-user fixed windows in Redis and reads back the
+     * cluster totals. The total is weighted across the current and previous window to approximate
+     * a sliding window, and is used as a floor for the local count until the next sync.
+     */
+    @Scheduled(fixedDelayString = "${payment.risk.redis-sync.interval:1000}")
+    public void syncClusterCounts() {
+        if (!redisSyncEnabled) {
+            return;
+        }
+        Engine current = engine.get();
+        long now = System.currentTimeMillis();
+        long windowMillis = current.rules.userWindow().toMillis();
+        long windowIndex = now / windowMillis;
+        double previousWeight = 1.0 - (double) (now % windowMillis) / windowMillis;
+
+        List<Map.Entry<UUID, UserState>> active = new ArrayList<>();
+        users.forEach((userId, user) -> {
+            if (user.lastSeen >= now - windowMillis) {
+                active.add(Map.entry(userId, user));
+            }
+        });
+        if (active.isEmpty()) {
+            return;
+        }
+
+        long[] deltas = new long[active.size()];
+        for (int i = 0; i < deltas.length; i++) {
+            deltas[i] = active.get(i).getValue().unsyncedAttempts.getAndSet(0);
+        }
+
+        StringRedisTemplate redis = redisTemplate.getObject();
+        try {
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                for (int i = 0; i < deltas.length; i++) {
+                    if (deltas[i] > 0) {
+                        String key = clusterKey(active.get(i).getKey(), windowIndex);
+                        strings.incrBy(key, deltas[i]);
+                        strings.pExpire(key, windowMillis * 2);
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Put the attempts back so they are published on the next round
+            for (int i = 0; i < deltas.length; i++) {
+                active.get(i).getValue().unsyncedAttempts.addAndGet(deltas[i]);
+            }
+            log.warn("Could not publish risk counters to Redis: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            List<Object> totals = redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                for (Map.Entry<UUID, UserState> entry : active) {
+                    strings.get(clusterKey(entry.getKey(), windowIndex));
+                    strings.get(clusterKey(entry.getKey(), windowIndex - 1));
+                }
+                return null;
+            });
+            for (int i = 0; i < active.size(); i++) {
+                long currentWindow = parseCount(totals.get(2 * i));
+                long previousWindow = parseCount(totals.get(2 * i + 1));
+                active.get(i).getValue().clusterAttempts = currentWindow + (long) (previousWindow * previousWeight);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not read risk counters from Redis: {}", e.getMessage());
+        }
+    }
+
+    private Assessment decline(Rule rule) {
+        declines.get(rule).increment();
+        return new Assessment(RiskDecision.DECLINED, rule.reason);
+    }
+
+    private RiskRules read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            RiskRules rules = objectMapper.readValue(in, RiskRules.class);
+            validate(rules);
+            return rules;
+        }
+    }
+
+    private void validate(RiskRules rules) throws IOException {
+        if (rules.userWindow() == null || rules.failureCooldown() == null
+                || rules.userWindow().isZero() || rules.userWindow().isNegative()) {
+            throw new IOException("userWindow and failureCooldown are required");
+        }
+        if (rules.maxAttemptsPerUser() <= 0 || rules.maxFailureStreak() <= 0) {
+            throw new IOException("maxAttemptsPerUser and maxFailureStreak must be positive");
+        }
+        for (RiskRules.AmountBucket bucket : rules.amountBuckets()) {
+            if (bucket.window() == null || bucket.window().isZero() || bucket.window().isNegative()) {
+                throw new IOException("Every amount bucket needs a positive window");
+            }
+        }
+    }
+
+    private Engine rebuild(Resource resource) throws IOException {
+        return new Engine(read(resource), engine.get());
+    }
+
+    private UserState user(UUID userId, RiskRules rules) {
+        UserState user = users.get(userId);
+        return user != null ? user : users.computeIfAbsent(userId, id -> new UserState(rules));
+    }
+
+    private Engine loaded(Engine loaded) {
+        log.info("Loaded risk rules from {}: {}", engine.getDescription(), loaded.rules);
+        return loaded;
+    }
+
+    private static String clusterKey(UUID userId, long windowIndex) {
+        return CLUSTER_KEY_PREFIX + userId + ":" + windowIndex;
+    }
+
+    private static long parseCount(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    // A counter is kept across a reload when its window has the same length under the new rules
+    private static boolean sameWindow(RiskRules previous, RiskRules rules, int bucket) {
+        return previous != null && bucket < previous.amountBuckets().size()
+            && previous.amountBuckets().get(bucket).window().equals(rules.amountBuckets().get(bucket).window());
+    }
+
+    // Rules and the global counters sized for them are swapped together
+    private static final class Engine {
+        private final RiskRules rules;
+        private final SlidingWindowCounter[] globalAmountAttempts;
+
+        private Engine(RiskRules rules, Engine previous) {
+            this.rules = rules;
+            this.globalAmountAttempts = new SlidingWindowCounter[rules.amountBuckets().size()];
+            for (int i = 0; i < globalAmountAttempts.length; i++) {
+                // Every request touches these, so spread writers across stripes
+                globalAmountAttempts[i] = sameWindow(previous == null ? null : previous.rules, rules, i)
+                    ? previous.globalAmountAttempts[i]
+                    : new SlidingWindowCounter(rules.amountBuckets().get(i).window().toMillis(), 10, GLOBAL_STRIPES);
+            }
+        }
+    }
+
+    private static final class UserState {
+        private final AtomicInteger failureStreak = new AtomicInteger();
+        private final AtomicLong unsyncedAttempts = new AtomicLong();
+        private volatile Windows windows;
+        private volatile long clusterAttempts;
+        private volatile long blockedUntil;
+        private volatile long lastSeen;
+
+        private UserState(RiskRules rules) {
+            this.windows = new Windows(rules, null);
+        }
+
+        // Resized on the user's first attempt under new rules
+        private Windows windowsFor(RiskRules rules) {
+            Windows current = windows;
+            if (current.rules == rules) {
+                return current;
+            }
+            synchronized (this) {
+                if (windows.rules != rules) {
+                    windows = new Windows(rules, windows);
+                }
+                return windows;
+            }
+        }
+    }
+
+    // A user's counters, sized for the rules they were built for
+    private static final class Windows {
+        private final RiskRules rules;
+        private final SlidingWindowCounter attempts;
+        private final SlidingWindowCounter[] amountAttempts;
+
+        private Windows(RiskRules rules, Windows previous) {
+            this.rules = rules;
+            this.attempts = previous != null && previous.rules.userWindow().equals(rules.userWindow())
+                ? previous.attempts
+                : SlidingWindowCounter.forWindow(rules.userWindow().toMillis());
+            this.amountAttempts = new SlidingWindowCounter[rules.amountBuckets().size()];
+            for (int i = 0; i < amountAttempts.length; i++) {
+                amountAttempts[i] = sameWindow(previous == null ? null : previous.rules, rules, i)
+                    ? previous.amountAttempts[i]
+                    : SlidingWindowCounter.forWindow(rules.amountBuckets().get(i).window().toMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.payment.service;
+
+import com.example.payment.config.ShardingProperties;
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.util.ShardContext;
+import com.example.payment.util.ShardKeys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Node-local copy of the bucket-to-shard map kept in {@code shard_buckets} on shard 0. It is
+ * loaded on first use rather than at startup so the migrations have run, and refreshed every
+ * {@code payment.sharding.directory-refresh} on a thread of its own, so long scheduled jobs
+ * cannot hold it up. A copy older than {@link #maxStaleness()} is reloaded before it is used;
+ * rebalancing relies on that bound.
+ */
+@Slf4j
+@Service
+public class ShardDirectory {
+    private static final ShardContext.Route DIRECTORY_SHARD = new ShardContext.Route(0, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int shardCount;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService refresher =
+        Executors.newSingleThreadScheduledExecutor(WorkloadContext.backgroundThreads("shard-directory-"));
+
+    private volatile Assignments assignments;
+
+    public ShardDirectory(JdbcTemplate jdbcTemplate, ShardingProperties shardingProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardCount = shardingProperties.shardCount();
+        this.refreshInterval = shardingProperties.directoryRefresh();
+    }
+
+    // Replaced as a whole on refresh, so readers always see one consistent map
+    private record Assignments(int[] shards, boolean[] migrating, long loadedAt) {
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * The oldest copy of the directory any node routes with: one and a half refresh intervals.
+     */
+    public Duration maxStaleness() {
+        return refreshInterval.plus(refreshInterval.dividedBy(2));
+    }
+
+    public int shardOf(int bucket) {
+        return assignments().shards()[bucket];
+    }
+
+    public boolean isMigrating(int bucket) {
+        return assignments().migrating()[bucket];
+    }
+
+    public int[] bucketCounts() {
+        int[] counts = new int[shardCount];
+        for (int shard : assignments().shards()) {
+            counts[shard]++;
+        }
+        return counts;
+    }
+
+    public List<Integer> bucketsOn(int shard) {
+        int[] shards = assignments().shards();
+        List<Integer> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket < shards.length; bucket++) {
+            if (shards[bucket] == shard) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    public void setMigrating(int bucket, boolean migrating) {
+        onDirectoryShard(() -> jdbcTemplate.update(
+            "UPDATE shard_buckets SET migrating = ? WHERE bucket = ?", migrating, bucket));
+        refresh();
+    }
+
+    public void assign(int bucket, int shard) {
+        onDirectoryShard(() -> jdbcTemplate.update(
+            "UPDATE shard_buckets SET shard = ?, migrating = FALSE WHERE bucket = ?", shard, bucket));
+        refresh();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long millis = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                // Routing reloads on its own once the copy gets too old
+                log.warn("Could not refresh the shard directory", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void refresh() {
+        assignments = load(assignments == null);
+    }
+
+    private Assignments assignments() {
+        Assignments current = assignments;
+        return current == null || isStale(current) ? awaitLoad() : current;
+    }
+
+    // Loads on the refresher thread, away from any transaction the caller has bound to another shard
+    private Assignments awaitLoad() {
+        try {
+            return refresher.submit(() -> {
+                Assignments current = assignments;
+                if (current == null || isStale(current)) {
+                    current = load(current == null);
+                    assignments = current;
+                }
+                return current;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the shard directory", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Could not load the shard directory", e.getCause());
+        }
+    }
+
+    private boolean isStale(Assignments current) {
+        return System.nanoTime() - current.loadedAt() > maxStaleness().toNanos();
+    }
+
+    private Assignments load(boolean seed) {
+        // Taken before reading, so the age never understates how old the map is
+        long loadedAt = System.nanoTime();
+        return onDirectoryShard(() -> {
+            if (seed) {
+                // First start: spread buckets round-robin; existing rows are never overwritten
+                jdbcTemplate.update("INSERT INTO shard_buckets (bucket, shard) " +
+                    "SELECT b, b % ? FROM generate_series(0, ?) AS b ON CONFLICT (bucket) DO NOTHING",
+                    shardCount, ShardKeys.BUCKETS - 1);
+            }
+
+            int[] shards = new int[ShardKeys.BUCKETS];
+            boolean[] migrating = new boolean[ShardKeys.BUCKETS];
+            jdbcTemplate.query("SELECT bucket, shard, migrating FROM shard_buckets", rs -> {
+                int bucket = rs.getInt("bucket");
+                int shard = rs.getInt("shard");
+                if (shard >= shardCount) {
+                    throw new IllegalStateException("Bucket " + bucket + " is assigned to shard " + shard
+                        + " but only " + shardCount + " shards are configured");
+                }
+                shards[bucket] = shard;
+                migrating[bucket] = rs.getBoolean("migrating");
+            });
+            return new Assignments(shards, migrating, loadedAt);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+
+    private <T> T onDirectoryShard(Supplier<T> work) {
+        return ShardContext.call(DIRECTORY_SHARD, work);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.payment.service;
+
+import com.example.payment.config.ShardingProperties;
+import com.example.payment.dto.ShardBucketDTO;
+import com.example.payment.dto.ShardSummaryDTO;
+import com.example.payment.util.ShardKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves one bucket of users, with everything they own, from its shard to another. The bucket is
+ * marked as migrating first, which makes every node reject requests for it, so nothing writes to
+ * it while the rows are copied. Once the copy commits, the directory points at the new shard and
+ * the old rows are deleted.
+ */
+@Slf4j
+@Service
+public class ShardRebalanceService {
+    private static final int USER_CHUNK_SIZE = 500;
+    private static final int COPY_PAGE_SIZE = 1000;
+    private static final String OWNED_PAYMENTS = "payment_id IN (SELECT id FROM payments WHERE user_id = ANY(?))";
+
+    // Parents before children; deletes run in reverse
+    private static final List<OwnedTable> OWNED_TABLES = List.of(
+        new OwnedTable("users", "id = ANY(?)", List.of("id"), false),
+        new OwnedTable("user_roles", "user_id = ANY(?)", List.of("user_id", "role"), false),
+        new OwnedTable("refresh_tokens", "user_id = ANY(?)", List.of("id"), false),
+        new OwnedTable("payments", "user_id = ANY(?)", List.of("id"), false),
+        new OwnedTable("payment_status_history", OWNED_PAYMENTS, List.of("id"), true),
+        new OwnedTable("provider_retries", OWNED_PAYMENTS, List.of("id"), false),
+        new OwnedTable("ledger_entries", "user_id = ANY(?)", List.of("id"), true),
+        new OwnedTable("ledger_balances", "user_id = ANY(?)", List.of("user_id", "account", "currency", "stripe"), false));
+
+    private final ShardDirectory directory;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration settleTime;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ShardRebalanceService(
+            ShardDirectory directory,
+            ShardRouter shardRouter,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ShardingProperties shardingProperties) {
+        this.directory = directory;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        // Past the directory's staleness bound every node routes with the change; the rest of the
+        // second refresh interval lets work that was routed just before finish
+        this.settleTime = shardingProperties.directoryRefresh().multipliedBy(2);
+    }
+
+    // Rows are copied in pages ordered by key. Identity columns are regenerated on the target,
+    // since each shard has its own sequence.
+    private record OwnedTable(String name, String ownedBy, List<String> key, boolean skipIdentity) {
+    }
+
+    public List<ShardSummaryDTO> getShards() {
+        int[] buckets = directory.bucketCounts();
+        List<ShardSummaryDTO> shards = new ArrayList<>();
+        for (int shard = 0; shard < buckets.length; shard++) {
+            int current = shard;
+            shards.add(shardRouter.onShard(shard, () -> new ShardSummaryDTO(
+                current,
+                buckets[current],
+                jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class),
+                jdbcTemplate.queryForObject("SELECT count(*) FROM payments", Long.class))));
+        }
+        return shards;
+    }
+
+    public ShardBucketDTO moveBucket(int bucket, int targetShard) {
+        if (bucket < 0 || bucket >= ShardKeys.BUCKETS) {
+            throw new IllegalArgumentException("Bucket must be between 0 and " + (ShardKeys.BUCKETS - 1));
+        }
+        if (targetShard < 0 || targetShard >= directory.shardCount()) {
+            throw new IllegalArgumentException("Unknown shard " + targetShard);
+        }
+        int sourceShard = directory.shardOf(bucket);
+        if (sourceShard == targetShard) {
+            return new ShardBucketDTO(bucket, targetShard, false, 0);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rebalance is already running on this node");
+        }
+
+        try {
+            log.info("Moving bucket {} from shard {} to shard {}", bucket, sourceShard, targetShard);
+            directory.setMigrating(bucket, true);
+            List<UUID> userIds = List.of();
+            try {
+                settle();
+                userIds = shardRouter.onShard(sourceShard, () -> jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE id BETWEEN ? AND ?", UUID.class,
+                    ShardKeys.firstId(bucket), ShardKeys.lastId(bucket)));
+                for (List<UUID> chunk : chunks(userIds)) {
+                    copy(chunk, sourceShard, targetShard);
+                }
+                directory.assign(bucket, targetShard);
+            } catch (RuntimeException e) {
+                // Nothing has been deleted from the source, so it simply stays authoritative
+                removePartialCopy(userIds, targetShard);
+                directory.setMigrating(bucket, false);
+                throw e;
+            }
+
+            settle();
+            for (List<UUID> chunk : chunks(userIds)) {
+                shardRouter.onShard(sourceShard, () -> transactionTemplate.execute(status -> delete(chunk)));
+            }
+            log.info("Moved bucket {} ({} users) from shard {} to shard {}", bucket, userIds.size(), sourceShard, targetShard);
+            return new ShardBucketDTO(bucket, targetShard, false, userIds.size());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Only one page is held at a time; a failed copy is removed by removePartialCopy
+    private void copy(List<UUID> userIds, int sourceShard, int targetShard) {
+        // Clears what an earlier, interrupted move of the same users left behind
+        shardRouter.onShard(targetShard, () -> transactionTemplate.execute(status -> delete(userIds)));
+        for (OwnedTable table : OWNED_TABLES) {
+            Map<String, Object> after = null;
+            List<Map<String, Object>> page;
+            do {
+                Map<String, Object> previous = after;
+                page = shardRouter.onShard(sourceShard, () -> readPage(table, userIds, previous));
+                List<Map<String, Object>> rows = page;
+                shardRouter.onShard(targetShard, () -> transactionTemplate.execute(status -> {
+                    insert(table, rows);
+                    return null;
+                }));
+                after = page.isEmpty() ? null : page.get(page.size() - 1);
+            } while (page.size() == COPY_PAGE_SIZE);
+        }
+    }
+
+    private List<Map<String, Object>> readPage(OwnedTable table, List<UUID> userIds, Map<String, Object> after) {
+        String key = String.join(", ", table.key());
+        String sql = "SELECT * FROM " + table.name() + " WHERE " + table.ownedBy()
+            + (after == null ? "" : " AND (" + key + ") > (" + placeholders(table.key().size()) + ")")
+            + " ORDER BY " + key + " LIMIT " + COPY_PAGE_SIZE;
+        return jdbcTemplate.query(sql, statement -> {
+            ownerIds(userIds).setValues(statement);
+            if (after != null) {
+                for (int i = 0; i < table.key().size(); i++) {
+                    statement.setObject(i + 2, after.get(table.key().get(i)));
+                }
+            }
+        }, new ColumnMapRowMapper());
+    }
+
+    // Copies left on the target would otherwise show up in lookups that visit every shard
+    private void removePartialCopy(List<UUID> userIds, int targetShard) {
+        try {
+            for (List<UUID> chunk : chunks(userIds)) {
+                shardRouter.onShard(targetShard, () -> transactionTemplate.execute(status -> delete(chunk)));
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not remove partially copied users from shard {}", targetShard, e);
+        }
+    }
+
+    private void insert(OwnedTable table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = rows.get(0).keySet().stream()
+            .filter(column -> !(table.skipIdentity() && column.equals("id")))
+            .toList();
+        String sql = "INSERT INTO " + table.name() + " (" + String.join(", ", columns) + ") VALUES ("
+            + placeholders(columns.size()) + ")";
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(), (statement, row) -> {
+            for (int i = 0; i < columns.size(); i++) {
+                statement.setObject(i + 1, row.get(columns.get(i)));
+            }
+        });
+    }
+
+    private Void delete(List<UUID> userIds) {
+        for (int i = OWNED_TABLES.size() - 1; i >= 0; i--) {
+            OwnedTable table = OWNED_TABLES.get(i);
+            jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE " + table.ownedBy(), ownerIds(userIds));
+        }
+        return null;
+    }
+
+    private static PreparedStatementSetter ownerIds(List<UUID> userIds) {
+        return statement -> statement.setArray(1, statement.getConnection().createArrayOf("uuid", userIds.toArray()));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static List<List<UUID>> chunks(List<UUID> ids) {
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += USER_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + USER_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private void settle() {
+        try {
+            Thread.sleep(settleTime.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shard directory to settle", e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.payment.service;
+
+import com.example.payment.config.ShardingProperties;
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.config.WorkloadContext;
+import com.example.payment.util.ShardContext;
+import com.example.payment.util.ShardKeys;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs database work on the right shard. Single-user operations are routed by the bucket in the
+ * user or payment id; lookups by anything else (email, token hash, status) visit every shard.
+ */
+@Component
+public class ShardRouter {
+    private final ShardDirectory directory;
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(ShardDirectory directory, ShardingProperties shardingProperties) {
+        this.directory = directory;
+        this.scatterExecutor = Executors.newFixedThreadPool(
+            shardingProperties.scatterThreads(), new CustomizableThreadFactory("shard-scatter-"));
+    }
+
+    public int shardCount() {
+        return directory.shardCount();
+    }
+
+    public int shardOfId(UUID id) {
+        return directory.shardOf(ShardKeys.bucketOf(id));
+    }
+
+    /**
+     * Runs {@code work} on the shard owning the user or payment {@code id}. Buckets being moved
+     * by a rebalance are unavailable until the move completes.
+     */
+    public <T> T onUser(UUID id, Supplier<T> work) {
+        return onBucket(ShardKeys.bucketOf(id), work);
+    }
+
+    /**
+     * Runs {@code work} on a randomly chosen bucket, so users created inside it are spread evenly.
+     */
+    public <T> T onNewUser(Supplier<T> work) {
+        int bucket = ShardKeys.randomBucket();
+        for (int attempt = 0; attempt < ShardKeys.BUCKETS && directory.isMigrating(bucket); attempt++) {
+            bucket = (bucket + 1) % ShardKeys.BUCKETS;
+        }
+        return onBucket(bucket, work);
+    }
+
+    /**
+     * The shard owning the user or payment {@code id}, for writes that are batched by shard. Like
+     * {@link #onUser}, it refuses ids whose bucket is being moved.
+     */
+    public int shardForWrite(UUID id) {
+        int bucket = ShardKeys.bucketOf(id);
+        checkNotMigrating(bucket);
+        return directory.shardOf(bucket);
+    }
+
+    /**
+     * Runs {@code work} on {@code shard} without checking for buckets being moved. Meant for
+     * scans, leases and other work that is not about one user; writes to a user's rows go
+     * through {@link #onUser} or {@link #shardForWrite}, or a rebalance can delete them.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return enter(new ShardContext.Route(shard, null), work);
+    }
+
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shardCount(); shard++) {
+            int current = shard;
+            onShard(shard, () -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs {@code query} on every shard in parallel and concatenates the results in shard order.
+     */
+    public <T> List<T> scatter(Supplier<List<T>> query) {
+        if (shardCount() == 1) {
+            return onShard(0, query);
+        }
+        // Each part borrows from the caller's pools, so a background scan cannot drain the API's
+        WorkloadClass workload = WorkloadContext.current();
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>();
+        for (int shard = 0; shard < shardCount(); shard++) {
+            int current = shard;
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                WorkloadContext.set(workload);
+                try {
+                    return onShard(current, query);
+                } finally {
+                    WorkloadContext.clear();
+                }
+            }, scatterExecutor));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            parts.forEach(part -> results.addAll(part.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    public <T> Optional<T> findFirst(Supplier<Optional<T>> lookup) {
+        for (int shard = 0; shard < shardCount(); shard++) {
+            Optional<T> found = onShard(shard, lookup);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean anyShard(BooleanSupplier check) {
+        return findFirst(() -> check.getAsBoolean() ? Optional.of(Boolean.TRUE) : Optional.empty()).isPresent();
+    }
+
+    /**
+     * Runs {@code work} for a row written before sharding, whose id does not carry its bucket.
+     * Rebalances move rows with the user owning them, so the owner is looked up on every shard
+     * and the work is routed as {@link #onUser} would route it, refusing buckets being moved.
+     */
+    public <T> T onOwner(Supplier<Optional<UUID>> ownerLookup, Supplier<T> work, EntityNotFoundException notFound) {
+        UUID owner = findFirst(ownerLookup).orElseThrow(() -> notFound);
+        return onUser(owner, work);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scatterExecutor.shutdown();
+    }
+
+    private <T> T onBucket(int bucket, Supplier<T> work) {
+        checkNotMigrating(bucket);
+        return enter(new ShardContext.Route(directory.shardOf(bucket), bucket), work);
+    }
+
+    private void checkNotMigrating(int bucket) {
+        if (directory.isMigrating(bucket)) {
+            throw new RejectedExecutionException("Shard bucket " + bucket + " is being rebalanced");
+        }
+    }
+
+    private <T> T enter(ShardContext.Route route, Supplier<T> work) {
+        ShardContext.Route current = ShardContext.current();
+        int currentShard = current == null ? 0 : current.shard();
+        // A bound transaction already holds a connection to its shard and cannot follow a switch
+        if (currentShard != route.shard() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + route.shard()
+                + " inside a transaction on shard " + currentShard);
+        }
+        return ShardContext.call(route, work);
+    }
+}
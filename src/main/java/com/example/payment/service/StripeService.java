@@ -1,25 +1,33 @@
 package com.example.payment.service;
 
 import com.example.payment.model.Payment;
+import com.example.payment.model.PaymentMethod;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.RefundCreateParams;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+
 @Slf4j
+@Lazy
 @Service
 @RequiredArgsConstructor
 public class StripeService {
     @Value("${payment.stripe.api-key}")
     private String apiKey;
 
+    private final ProviderErrorClassifier errorClassifier;
+
     @PostConstruct
     public void init() {
         Stripe.apiKey = apiKey;
@@ -34,11 +42,15 @@ public class StripeService {
                 .putMetadata("paymentId", payment.getId().toString())
                 .build();
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            // Retries of the same payment must not create a second intent
+            RequestOptions options = RequestOptions.builder()
+                .setIdempotencyKey("payment-" + payment.getId())
+                .build();
+
+            PaymentIntent paymentIntent = PaymentIntent.create(params, options);
             return paymentIntent.getId();
         } catch (StripeException e) {
-            log.error("Stripe payment processing failed", e);
-            throw new PaymentProcessingException("Stripe payment failed: " + e.getMessage());
+            throw errorClassifier.toException(PaymentMethod.CREDIT_CARD, "Stripe payment failed", e);
         }
     }
 
@@ -48,10 +60,13 @@ public class StripeService {
                 .setPaymentIntent(payment.getExternalReference())
                 .build();
 
-            Refund.create(params);
+            RequestOptions options = RequestOptions.builder()
+                .setIdempotencyKey("refund-" + payment.getId())
+                .build();
+
+            Refund.create(params, options);
         } catch (StripeException e) {
-            log.error("Stripe refund processing failed", e);
-            throw new PaymentProcessingException("Stripe refund failed: " + e.getMessage());
+            throw errorClassifier.toException(PaymentMethod.CREDIT_CARD, "Stripe refund failed", e);
         }
     }
 
@@ -0,0 +1,46 @@
+package com.example.payment.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Global index of registered emails, kept in {@code user_emails} on shard 0. The unique
+ * constraint on {@code users.email} only covers one shard, so an email is claimed here before
+ * its user is created on the shard of a random bucket.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserEmailRegistry {
+    private static final int INDEX_SHARD = 0;
+    // A claim whose user was never recorded, e.g. because the node stopped, is given up after this
+    private static final Duration ABANDONED_CLAIM = Duration.ofMinutes(10);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Claims {@code email} for a registration. Returns false while another user owns it or is
+     * being registered with it.
+     */
+    public boolean claim(String email) {
+        return shardRouter.onShard(INDEX_SHARD, () -> jdbcTemplate.update(
+            "INSERT INTO user_emails (email) VALUES (?) ON CONFLICT (email) DO UPDATE SET claimed_at = now() " +
+                "WHERE user_emails.user_id IS NULL AND user_emails.claimed_at < now() - ? * INTERVAL '1 millisecond'",
+            email, ABANDONED_CLAIM.toMillis())) == 1;
+    }
+
+    public void assign(String email, UUID userId) {
+        shardRouter.onShard(INDEX_SHARD, () -> jdbcTemplate.update(
+            "UPDATE user_emails SET user_id = ? WHERE email = ?", userId, email));
+    }
+
+    // Only a claim that never got its user is released
+    public void release(String email) {
+        shardRouter.onShard(INDEX_SHARD, () -> jdbcTemplate.update(
+            "DELETE FROM user_emails WHERE email = ? AND user_id IS NULL", email));
+    }
+}
@@ -1,12 +1,13 @@
 package com.example.payment.service;
 
+import com.example.payment.config.ShardKeyType;
+import com.example.payment.config.Sharded;
 import com.example.payment.dto.CreateUserRequest;
 import com.example.payment.dto.UserDTO;
 import com.example.payment.model.User;
 import com.example.payment.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +20,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final ShardRouter shardRouter;
 
+    // Passwords are hashed by the caller on PasswordHashingService, never on a request thread
     @Transactional
-    public UserDTO createUser(CreateUserRequest request) {
+    public UserDTO createUser(CreateUserRequest request, String encodedPassword) {
+        return convertToDTO(registerUser(request, encodedPassword));
+    }
+
+    @Transactional
+    public User registerUser(CreateUserRequest request, String encodedPassword) {
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new IllegalArgumentException("Email already registered");
         }
@@ -30,13 +37,13 @@ public class UserService {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(encodedPassword);
         user.getRoles().add("ROLE_USER");
 
-        User savedUser = userRepository.save(user);
-        return convertToDTO(savedUser);
+        return userRepository.save(user);
     }
 
+    @Sharded(ShardKeyType.USER)
     @Transactional(readOnly = true)
     public UserDTO getUserById(UUID id) {
         return userRepository.findById(id)
@@ -44,20 +51,23 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
 
-    @Transactional(readOnly = true)
     public List<UserDTO> getAllUsers() {
-        return userRepository.findAll().stream()
+        return shardRouter.scatter(() -> userRepository.findAll().stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
-    @Transactional
+    // Emails are not a shard key, so the owning user is found first
     public void updateLastLogin(String email) {
-        userRepository.findByEmail(email)
-                .ifPresent(user -> {
-                    user.setLastLogin(LocalDateTime.now());
-                    userRepository.save(user);
-                });
+        shardRouter.findFirst(() -> userRepository.findByEmail(email).map(User::getId)).ifPresent(userId ->
+            shardRouter.onUser(userId, () -> {
+                userRepository.findById(userId)
+                        .ifPresent(user -> {
+                            user.setLastLogin(LocalDateTime.now());
+                            userRepository.save(user);
+                        });
+                return null;
+            }));
     }
 
     private UserDTO convertToDTO(User user) {
@@ -0,0 +1,77 @@
+package com.example.payment.service;
+
+import com.example.payment.config.WorkloadClass;
+import com.example.payment.config.WorkloadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkheads for request threads. Every workload class may hold at most its own number of
+ * request threads, and once overall thread use passes a class's shedding threshold, new requests
+ * of that class are rejected straight away. A webhook flood is therefore turned away long before
+ * it can occupy the threads that API calls need.
+ */
+@Slf4j
+@Service
+public class WorkloadAdmissionService {
+    private final WorkloadProperties workloadProperties;
+    private final int requestThreads;
+    private final AtomicInteger totalInFlight = new AtomicInteger();
+    private final Map<WorkloadClass, AtomicInteger> inFlight = new EnumMap<>(WorkloadClass.class);
+    private final Map<WorkloadClass, Counter> rejected = new EnumMap<>(WorkloadClass.class);
+
+    public WorkloadAdmissionService(
+            WorkloadProperties workloadProperties,
+            MeterRegistry meterRegistry,
+            @Value("${server.tomcat.threads.max:200}") int requestThreads) {
+        this.workloadProperties = workloadProperties;
+        this.requestThreads = requestThreads;
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            AtomicInteger count = new AtomicInteger();
+            inFlight.put(workload, count);
+            Gauge.builder("payment.workload.in.flight", count, AtomicInteger::get)
+                .tag("workload", workload.name())
+                .description("Requests of the workload class being handled")
+                .register(meterRegistry);
+            rejected.put(workload, Counter.builder("payment.workload.rejected")
+                .tag("workload", workload.name())
+                .description("Requests turned away by admission control")
+                .register(meterRegistry));
+        }
+        Gauge.builder("payment.workload.utilization", totalInFlight, count -> (double) count.get() / requestThreads)
+            .description("Share of request threads in use by admitted requests")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Admits a request or throws {@link RejectedExecutionException}. Every admitted request must
+     * be {@link #release released} exactly once.
+     */
+    public void admit(WorkloadClass workload) {
+        WorkloadProperties.Limits limits = workloadProperties.limits(workload);
+        AtomicInteger count = inFlight.get(workload);
+        int total = totalInFlight.incrementAndGet();
+        int current = count.incrementAndGet();
+        if (current > limits.maxConcurrent() || total > limits.shedAbove() * requestThreads) {
+            count.decrementAndGet();
+            totalInFlight.decrementAndGet();
+            rejected.get(workload).increment();
+            log.debug("Shedding {} request: {} in flight for the class, {} overall", workload, current - 1, total - 1);
+            throw new RejectedExecutionException("Server is busy, try again later");
+        }
+    }
+
+    public void release(WorkloadClass workload) {
+        inFlight.get(workload).decrementAndGet();
+        totalInFlight.decrementAndGet();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.payment.util;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.UUID;
+
+/**
+ * Builds PIX "copia e cola" payloads (EMV BR Code) for one merchant. The merchant's fields never
+ * change between charges, so they are encoded once, together with the CRC state after the leading
+ * ones; a charge only writes its amount and transaction id into a reused per-thread buffer,
+ * finishes the CRC and copies the result into a string.
+ */
+public final class BrCodeTemplate {
+    public static final int TXID_LENGTH = 25;
+
+    private static final int MAX_PAYLOAD = 512;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] CRC_TABLE = new int[256];
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[MAX_PAYLOAD]);
+
+    static {
+        // CRC-16/CCITT-FALSE, as required for field 63
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    // Fields 00 to 53, written before the amount (54)
+    private final byte[] head;
+    private final int headCrc;
+    // Fields 58 to 60, written between the amount and the additional data (62)
+    private final byte[] merchant;
+
+    public BrCodeTemplate(String pixKey, String merchantName, String merchantCity) {
+        if (pixKey == null || pixKey.isBlank() || pixKey.trim().length() > 77) {
+            throw new IllegalArgumentException("PIX key must have 1 to 77 characters");
+        }
+        String accountInfo = field("00", "br.gov.bcb.pix") + field("01", pixKey.trim());
+        this.head = ascii(field("00", "01")
+            + field("01", "12")
+            + field("26", accountInfo)
+            + field("52", "0000")
+            + field("53", "986"));
+        this.headCrc = crc(0xFFFF, head, 0, head.length);
+        this.merchant = ascii(field("58", "BR")
+            + field("59", normalize(merchantName, 25))
+            + field("60", normalize(merchantCity, 15)));
+    }
+
+    /**
+     * Returns the payload charging {@code amountInCents} centavos, identified by {@link #txid}.
+     */
+    public String payload(long amountInCents, UUID paymentId) {
+        if (amountInCents <= 0) {
+            throw new IllegalArgumentException("PIX amount must be positive");
+        }
+        byte[] buffer = BUFFER.get();
+        System.arraycopy(head, 0, buffer, 0, head.length);
+        int position = head.length;
+
+        position = writeTag(buffer, position, 54, amountLength(amountInCents));
+        position = writeAmount(buffer, position, amountInCents);
+
+        System.arraycopy(merchant, 0, buffer, position, merchant.length);
+        position += merchant.length;
+
+        position = writeTag(buffer, position, 62, 4 + TXID_LENGTH);
+        position = writeTag(buffer, position, 5, TXID_LENGTH);
+        position = writeTxid(buffer, position, paymentId);
+
+        position = writeTag(buffer, position, 63, 4);
+        int crc = crc(headCrc, buffer, head.length, position);
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            buffer[position++] = HEX[(crc >>> shift) & 0xF];
+        }
+        return new String(buffer, 0, position, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * The transaction id (field 62-05) of the payment's charge: the last 25 hex digits of its id,
+     * which leave out the shard bucket in the leading bits.
+     */
+    public static String txid(UUID paymentId) {
+        byte[] txid = new byte[TXID_LENGTH];
+        writeTxid(txid, 0, paymentId);
+        return new String(txid, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int writeTxid(byte[] buffer, int position, UUID paymentId) {
+        long most = paymentId.getMostSignificantBits();
+        long least = paymentId.getLeastSignificantBits();
+        for (int i = 0; i < TXID_LENGTH; i++) {
+            int digit = 32 - TXID_LENGTH + i;
+            long bits = digit < 16 ? most >>> ((15 - digit) * 4) : least >>> ((31 - digit) * 4);
+            buffer[position + i] = HEX[(int) bits & 0xF];
+        }
+        return position + TXID_LENGTH;
+    }
+
+    private static int amountLength(long amountInCents) {
+        int digits = 1;
+        for (long units = amountInCents / 100; units >= 10; units /= 10) {
+            digits++;
+        }
+        if (digits + 3 > 13) {
+            throw new IllegalArgumentException("PIX amount is too large");
+        }
+        return digits + 3;
+    }
+
+    private static int writeAmount(byte[] buffer, int position, long amountInCents) {
+        int end = position + amountLength(amountInCents);
+        int cursor = end;
+        long cents = amountInCents % 100;
+        buffer[--cursor] = (byte) ('0' + cents % 10);
+        buffer[--cursor] = (byte) ('0' + cents / 10);
+        buffer[--cursor] = '.';
+        long units = amountInCents / 100;
+        do {
+            buffer[--cursor] = (byte) ('0' + units % 10);
+            units /= 10;
+        } while (units > 0);
+        return end;
+    }
+
+    private static int writeTag(byte[] buffer, int position, int id, int length) {
+        buffer[position++] = (byte) ('0' + id / 10);
+        buffer[position++] = (byte) ('0' + id % 10);
+        buffer[position++] = (byte) ('0' + length / 10);
+        buffer[position++] = (byte) ('0' + length % 10);
+        return position;
+    }
+
+    private static int crc(int crc, byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    private static String field(String id, String value) {
+        if (value.length() > 99) {
+            throw new IllegalArgumentException("BR Code field " + id + " is too long");
+        }
+        return id + (value.length() < 10 ? "0" : "") + value.length() + value;
+    }
+
+    // BR Code text fields are plain ASCII, so accents are stripped rather than encoded
+    private static String normalize(String value, int maxLength) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Merchant name and city are required");
+        }
+        String ascii = Normalizer.normalize(value.trim(), Normalizer.Form.NFD).replaceAll("[^\\x20-\\x7E]", "");
+        return ascii.length() > maxLength ? ascii.substring(0, maxLength) : ascii;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
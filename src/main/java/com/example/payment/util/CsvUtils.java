@@ -0,0 +1,78 @@
+package com.example.payment.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class CsvUtils {
+    private CsvUtils() {
+    }
+
+    /**
+     * Splits a single RFC 4180 record. Quoted fields may contain commas and doubled quotes,
+     * but not line breaks, since records are read one line at a time.
+     */
+    public static String[] parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    public static Map<String, String> toMap(String[] header, String line) {
+        String[] values = parseLine(line);
+        if (values.length != header.length) {
+            throw new IllegalArgumentException(
+                "Expected " + header.length + " columns but found " + values.length);
+        }
+        Map<String, String> fields = new HashMap<>(header.length * 2);
+        for (int i = 0; i < header.length; i++) {
+            fields.put(header[i], values[i].isEmpty() ? null : values[i]);
+        }
+        return fields;
+    }
+
+    /**
+     * Appends a quoted field, or nothing for {@code null} so PostgreSQL's CSV COPY reads it as NULL.
+     */
+    public static StringBuilder appendField(StringBuilder out, Object value) {
+        if (value != null) {
+            out.append('"');
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+        return out;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.payment.util;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of daily exchange rates, quoted as units of each currency per one unit of the
+ * base currency. A lookup uses the latest rate on or before the requested day. Rates are held in
+ * primitive arrays and gaps are filled forward when the table is built, so a conversion is a map
+ * probe, a binary search and two array reads, with no allocation.
+ */
+public final class FxRateSnapshot {
+    private final String baseCurrency;
+    private final Map<String, Integer> currencyIndex;
+    private final long[] days;
+    // rates[currency][day]; NaN until the currency's first quote
+    private final double[][] rates;
+
+    private FxRateSnapshot(String baseCurrency, Map<String, Integer> currencyIndex, long[] days, double[][] rates) {
+        this.baseCurrency = baseCurrency;
+        this.currencyIndex = currencyIndex;
+        this.days = days;
+        this.rates = rates;
+    }
+
+    public static Builder builder(String baseCurrency) {
+        return new Builder(baseCurrency);
+    }
+
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    public int currencyCount() {
+        return currencyIndex.size();
+    }
+
+    public int dayCount() {
+        return days.length;
+    }
+
+    /**
+     * Returns the index used by the primitive overloads, or -1 for an unknown currency.
+     */
+    public int indexOf(String currency) {
+        if (currency == null) {
+            return -1;
+        }
+        Integer index = currencyIndex.get(currency.toUpperCase());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Converts between two currencies at the rate in force on {@code epochDay}. Returns NaN when
+     * either currency is unknown or has no quote on or before that day.
+     */
+    public double convert(double amount, int from, int to, long epochDay) {
+        if (from < 0 || to < 0) {
+            return Double.NaN;
+        }
+        if (from == to) {
+            return amount;
+        }
+        int day = dayIndex(epochDay);
+        if (day < 0) {
+            return Double.NaN;
+        }
+        return amount * rates[to][day] / rates[from][day];
+    }
+
+    public double convert(double amount, String from, String to, LocalDate date) {
+        return convert(amount, indexOf(from), indexOf(to), date.toEpochDay());
+    }
+
+    private int dayIndex(long epochDay) {
+        int index = Arrays.binarySearch(days, epochDay);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public static final class Builder {
+        private final String baseCurrency;
+        private final Map<String, TreeMap<Long, Double>> quotes = new HashMap<>();
+
+        private Builder(String baseCurrency) {
+            this.baseCurrency = baseCurrency.toUpperCase();
+        }
+
+        public Builder rate(LocalDate date, String currency, double unitsPerBase) {
+            if (!(unitsPerBase > 0)) {
+                throw new IllegalArgumentException("Rate for " + currency + " on " + date + " must be positive");
+            }
+            quotes.computeIfAbsent(currency.toUpperCase(), c -> new TreeMap<>()).put(date.toEpochDay(), unitsPerBase);
+            return this;
+        }
+
+        public FxRateSnapshot build() {
+            long[] days = quotes.values().stream()
+                .flatMap(byDay -> byDay.keySet().stream())
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .toArray();
+
+            Map<String, Integer> currencyIndex = new HashMap<>();
+            currencyIndex.put(baseCurrency, 0);
+            quotes.keySet().stream()
+                .filter(currency -> !currency.equals(baseCurrency))
+                .sorted()
+                .forEach(currency -> currencyIndex.put(currency, currencyIndex.size()));
+
+            double[][] rates = new double[currencyIndex.size()][days.length];
+            Arrays.fill(rates[0], 1.0);
+            currencyIndex.forEach((currency, index) -> {
+                if (index == 0) {
+                    return;
+                }
+                TreeMap<Long, Double> byDay = quotes.get(currency);
+                for (int day = 0; day < days.length; day++) {
+                    Map.Entry<Long, Double> quote = byDay.floorEntry(days[day]);
+                    rates[index][day] = quote == null ? Double.NaN : quote.getValue();
+                }
+            });
+            return new FxRateSnapshot(baseCurrency, Map.copyOf(currencyIndex), days, rates);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.payment.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public final class PaymentVersion {
+    private PaymentVersion() {
+    }
+
+    /**
+     * Monotonic version of a payment derived from its {@code updatedAt}. Microsecond precision
+     * matches what PostgreSQL stores, so in-memory and persisted values agree.
+     */
+    public static long of(LocalDateTime updatedAt) {
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + updatedAt.getNano() / 1_000;
+    }
+
+    public static String format(long version) {
+        return Long.toHexString(version);
+    }
+
+    public static long parse(String version) {
+        return Long.parseUnsignedLong(version, 16);
+    }
+}
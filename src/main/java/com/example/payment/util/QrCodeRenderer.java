@@ -0,0 +1,66 @@
+package com.example.payment.util;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Renders QR codes as 1-bit PNGs. Modules are written straight into the image's packed pixel
+ * array rather than drawn through Graphics2D, which keeps rendering cheap enough to do per
+ * request.
+ */
+public final class QrCodeRenderer {
+    private static final int QUIET_ZONE_MODULES = 4;
+
+    private QrCodeRenderer() {
+    }
+
+    public static byte[] png(String content, int moduleSize) {
+        ByteMatrix matrix;
+        try {
+            matrix = Encoder.encode(content, ErrorCorrectionLevel.M).getMatrix();
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("Content cannot be encoded as a QR code", e);
+        }
+
+        int modules = matrix.getWidth() + 2 * QUIET_ZONE_MODULES;
+        int size = modules * moduleSize;
+        // TYPE_BYTE_BINARY packs 8 pixels per byte, most significant bit first; 1 is white
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = (size + 7) / 8;
+        Arrays.fill(pixels, (byte) 0xFF);
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            int top = (y + QUIET_ZONE_MODULES) * moduleSize;
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y) != 1) {
+                    continue;
+                }
+                int left = (x + QUIET_ZONE_MODULES) * moduleSize;
+                for (int row = top; row < top + moduleSize; row++) {
+                    int offset = row * stride;
+                    for (int column = left; column < left + moduleSize; column++) {
+                        pixels[offset + (column >> 3)] &= (byte) ~(0x80 >>> (column & 7));
+                    }
+                }
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
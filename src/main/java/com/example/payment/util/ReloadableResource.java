@@ -0,0 +1,74 @@
+package com.example.payment.util;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+/**
+ * A value read from a resource and read again when the resource changes. Readers get the current
+ * value without locking. Resources packaged in the jar cannot change, so only files on disk are
+ * watched.
+ */
+public final class ReloadableResource<T> {
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(Resource resource) throws IOException;
+    }
+
+    private final Resource resource;
+    private final Reader<T> reader;
+
+    private volatile T value;
+    private volatile long lastModified;
+
+    public ReloadableResource(Resource resource, Reader<T> reader) {
+        this.resource = resource;
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the last value read, or null before the first {@link #load}.
+     */
+    public T get() {
+        return value;
+    }
+
+    public String getDescription() {
+        return resource.getDescription();
+    }
+
+    /**
+     * Reads the resource whether or not it changed. On failure the previous value is kept.
+     */
+    public T load() throws IOException {
+        long modified = lastModified();
+        T loaded = reader.read(resource);
+        value = loaded;
+        lastModified = modified;
+        return loaded;
+    }
+
+    /**
+     * Reads the resource if it changed since it was last read, returning the new value, or null
+     * when it is unchanged. A change that fails to read keeps the previous value and is not
+     * retried until the resource changes again.
+     */
+    public T reloadIfChanged() throws IOException {
+        long modified = lastModified();
+        if (modified == 0 || modified == lastModified) {
+            return null;
+        }
+        lastModified = modified;
+        T loaded = reader.read(resource);
+        value = loaded;
+        return loaded;
+    }
+
+    private long lastModified() {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
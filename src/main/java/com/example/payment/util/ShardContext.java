@@ -0,0 +1,46 @@
+package com.example.payment.util;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard, and optionally the bucket, that database work on the current thread is routed to.
+ * Transactions bind their connection when they begin, so the shard has to be chosen before.
+ * Work with no shard set goes to shard 0.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Route> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public record Route(int shard, Integer bucket) {
+    }
+
+    public static Route current() {
+        return CURRENT.get();
+    }
+
+    public static Integer currentShard() {
+        Route route = CURRENT.get();
+        return route == null ? null : route.shard();
+    }
+
+    public static Integer currentBucket() {
+        Route route = CURRENT.get();
+        return route == null ? null : route.bucket();
+    }
+
+    public static <T> T call(Route route, Supplier<T> work) {
+        Route previous = CURRENT.get();
+        CURRENT.set(route);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
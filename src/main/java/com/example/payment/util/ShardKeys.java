@@ -0,0 +1,47 @@
+package com.example.payment.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Users and payments are partitioned into a fixed number of buckets, and the directory assigns
+ * buckets to shards. The bucket is carried in the top bits of every user and payment id, so any
+ * id can be routed without a lookup, and a payment always lives in the same bucket as its user.
+ */
+public final class ShardKeys {
+    public static final int BUCKET_BITS = 10;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private ShardKeys() {
+    }
+
+    public static int bucketOf(UUID id) {
+        return (int) (id.getMostSignificantBits() >>> (Long.SIZE - BUCKET_BITS));
+    }
+
+    /**
+     * Returns a random (version 4) UUID whose top bits encode {@code bucket}.
+     */
+    public static UUID newId(int bucket) {
+        UUID random = UUID.randomUUID();
+        long mostSigBits = (random.getMostSignificantBits() & (-1L >>> BUCKET_BITS))
+            | ((long) bucket << (Long.SIZE - BUCKET_BITS));
+        return new UUID(mostSigBits, random.getLeastSignificantBits());
+    }
+
+    /**
+     * The lowest id in {@code bucket}. PostgreSQL orders uuids by their bytes, so the ids of a
+     * bucket, or of a run of buckets, form one range that an index can be scanned for.
+     */
+    public static UUID firstId(int bucket) {
+        return new UUID((long) bucket << (Long.SIZE - BUCKET_BITS), 0L);
+    }
+
+    public static UUID lastId(int bucket) {
+        return new UUID(((long) bucket << (Long.SIZE - BUCKET_BITS)) | (-1L >>> BUCKET_BITS), -1L);
+    }
+
+    public static int randomBucket() {
+        return ThreadLocalRandom.current().nextInt(BUCKETS);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.payment.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free approximate sliding-window counter. The window is split into fixed time buckets held
+ * in a ring; a bucket from an older lap is reset by whichever thread first sees it. Hot counters
+ * can be striped so concurrent writers touch different cache lines. A reset racing with an
+ * increment may drop that increment, which is acceptable for rate limiting.
+ */
+public final class SlidingWindowCounter {
+    // Striped slots are padded to their own cache line (8 longs)
+    private static final int CACHE_LINE_LONGS = 8;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final int stripeMask;
+    private final int padding;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray counts;
+
+    public SlidingWindowCounter(long windowMillis, int buckets, int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two");
+        }
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.stripeMask = stripes - 1;
+        this.padding = stripes > 1 ? CACHE_LINE_LONGS : 1;
+        this.epochs = new AtomicLongArray(buckets * stripes * padding);
+        this.counts = new AtomicLongArray(buckets * stripes * padding);
+    }
+
+    public static SlidingWindowCounter forWindow(long windowMillis) {
+        return new SlidingWindowCounter(windowMillis, 10, 1);
+    }
+
+    /**
+     * Adds one event at {@code nowMillis} and returns the total within the window, including it.
+     */
+    public long incrementAndSum(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        int stripe = stripeMask == 0 ? 0 : (int) Thread.currentThread().getId() & stripeMask;
+        int slot = slot((int) (epoch % buckets), stripe);
+
+        long slotEpoch = epochs.get(slot);
+        if (slotEpoch != epoch && epochs.compareAndSet(slot, slotEpoch, epoch)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+        return sum(nowMillis);
+    }
+
+    public long sum(long nowMillis) {
+        long currentEpoch = nowMillis / bucketMillis;
+        long oldestEpoch = currentEpoch - buckets + 1;
+        long total = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                int slot = slot(bucket, stripe);
+                long epoch = epochs.get(slot);
+                if (epoch >= oldestEpoch && epoch <= currentEpoch) {
+                    total += counts.get(slot);
+                }
+            }
+        }
+        return total;
+    }
+
+    private int slot(int bucket, int stripe) {
+        return (stripe * buckets + bucket) * padding;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.payment.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical timer wheel: four levels of 64 slots, each slot of a level spanning a whole turn of
+ * the level below. Scheduling and firing are O(1) per timer; a timer in an upper level is moved
+ * down once per level as its deadline approaches. With a one-second tick the wheel covers about
+ * 194 days; later deadlines wait in the last level and are re-filed when it comes round.
+ * <p>
+ * Timers cannot be cancelled individually; whoever fires them must check that they still apply.
+ * Not thread-safe.
+ */
+public final class TimerWheel<K> {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private record Timer<K>(K key, long deadlineTick) {
+    }
+
+    private final long tickMillis;
+    // slots[level][slot], created on first use
+    private final List<Timer<K>>[][] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new List[LEVELS][SLOTS];
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code key} to fire at the first tick at or after {@code deadlineMillis}. A
+     * deadline already passed fires on the next {@link #advance}.
+     */
+    public void schedule(K key, long deadlineMillis) {
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        file(new Timer<>(key, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis} and returns the keys whose deadline has been reached,
+     * in deadline order.
+     */
+    public List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            List<Timer<K>> due = take(0, (int) (currentTick & SLOT_MASK));
+            if (due != null) {
+                for (Timer<K> timer : due) {
+                    expired.add(timer.key());
+                }
+                size -= due.size();
+            }
+        }
+        return expired;
+    }
+
+    public void removeIf(Predicate<K> filter) {
+        for (List<Timer<K>>[] level : slots) {
+            for (List<Timer<K>> slot : level) {
+                if (slot != null) {
+                    int before = slot.size();
+                    slot.removeIf(timer -> filter.test(timer.key()));
+                    size -= before - slot.size();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    // On entering a new turn of a level, the matching slot of the level above is spread over it
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            List<Timer<K>> timers = take(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+            if (timers != null) {
+                timers.forEach(this::file);
+            }
+        }
+    }
+
+    private void file(Timer<K> timer) {
+        long delta = timer.deadlineTick() - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long tick = level == LEVELS - 1 && delta >= 1L << (SLOT_BITS * LEVELS)
+            ? currentTick + (1L << (SLOT_BITS * LEVELS)) - 1
+            : timer.deadlineTick();
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        if (slots[level][slot] == null) {
+            slots[level][slot] = new ArrayList<>();
+        }
+        slots[level][slot].add(timer);
+    }
+
+    private List<Timer<K>> take(int level, int slot) {
+        List<Timer<K>> timers = slots[level][slot];
+        if (timers == null || timers.isEmpty()) {
+            return null;
+        }
+        slots[level][slot] = null;
+        return timers;
+    }
+}
@@ -0,0 +1,5 @@
+-- Databases updated by ddl-auto after the export was added already have the created_at index
+CREATE INDEX IF NOT EXISTS idx_payments_created_at ON payments (created_at);
+CREATE INDEX IF NOT EXISTS idx_payments_user_id ON payments (user_id);
+CREATE INDEX IF NOT EXISTS idx_payments_external_reference ON payments (external_reference);
+CREATE INDEX IF NOT EXISTS idx_payments_status ON payments (status);
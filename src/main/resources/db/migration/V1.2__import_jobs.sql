@@ -0,0 +1,15 @@
+-- IF NOT EXISTS: databases updated by ddl-auto while imports existed already have the table
+CREATE TABLE IF NOT EXISTS import_jobs (
+    id             UUID          PRIMARY KEY,
+    file_name      VARCHAR(255)  NOT NULL,
+    format         VARCHAR(255)  NOT NULL,
+    status         VARCHAR(255)  NOT NULL,
+    processed_rows BIGINT        NOT NULL,
+    imported_rows  BIGINT        NOT NULL,
+    failed_rows    BIGINT        NOT NULL,
+    error_file     VARCHAR(255),
+    error_message  VARCHAR(1000),
+    created_at     TIMESTAMP(6)  NOT NULL,
+    updated_at     TIMESTAMP(6)  NOT NULL,
+    finished_at    TIMESTAMP(6)
+);
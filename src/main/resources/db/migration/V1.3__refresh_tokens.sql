@@ -0,0 +1,11 @@
+-- IF NOT EXISTS: databases updated by ddl-auto while refresh tokens existed already have the table
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id          UUID         PRIMARY KEY,
+    user_id     UUID         NOT NULL REFERENCES users (id),
+    token_hash  VARCHAR(64)  NOT NULL UNIQUE,
+    expires_at  TIMESTAMP(6) NOT NULL,
+    revoked_at  TIMESTAMP(6),
+    created_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens (user_id);
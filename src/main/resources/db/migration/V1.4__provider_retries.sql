@@ -0,0 +1,17 @@
+-- IF NOT EXISTS: databases updated by ddl-auto while provider retries existed already have the table
+CREATE TABLE IF NOT EXISTS provider_retries (
+    id              UUID          PRIMARY KEY,
+    payment_id      UUID          NOT NULL REFERENCES payments (id),
+    provider        VARCHAR(255)  NOT NULL,
+    operation       VARCHAR(255)  NOT NULL,
+    status          VARCHAR(255)  NOT NULL,
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    locked_until    TIMESTAMP(6),
+    last_error      VARCHAR(1000),
+    created_at      TIMESTAMP(6)  NOT NULL,
+    updated_at      TIMESTAMP(6)  NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_provider_retries_due ON provider_retries (provider, status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_provider_retries_payment_id ON provider_retries (payment_id);
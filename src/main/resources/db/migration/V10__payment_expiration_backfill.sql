@@ -0,0 +1,13 @@
+-- Deadlines for payments that could already expire when V6 added expires_at, from the default
+-- TTLs (payment.expiration.pix-ttl and pending-ttl). A deadline that has passed, or is about to,
+-- is put 30 minutes after the migration instead: a scheduler that is already running only reads
+-- deadlines beyond its look-ahead, and a payer who is paying right now still gets a last window.
+UPDATE payments
+SET expires_at = GREATEST(
+        created_at + CASE payment_method
+            WHEN 'PIX' THEN INTERVAL '30 minutes'
+            ELSE INTERVAL '24 hours'
+        END,
+        LOCALTIMESTAMP + INTERVAL '30 minutes')
+WHERE expires_at IS NULL
+  AND (status = 'PENDING' OR (status = 'PROCESSING' AND payment_method = 'PIX'));
@@ -0,0 +1,39 @@
+-- The schema Hibernate's ddl-auto created before Flyway took over. Such databases are baselined
+-- at this version, so it must stay exactly that schema; later tables go in later migrations.
+CREATE TABLE users (
+    id          UUID         PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    enabled     BOOLEAN      NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6) NOT NULL,
+    last_login  TIMESTAMP(6)
+);
+
+CREATE TABLE user_roles (
+    user_id UUID         NOT NULL REFERENCES users (id),
+    role    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (user_id, role)
+);
+
+-- The enum checks are named payments_status_check and payments_payment_method_check, as they
+-- are on databases Hibernate created
+CREATE TABLE payments (
+    id                 UUID           PRIMARY KEY,
+    amount             NUMERIC(38, 2) NOT NULL,
+    status             VARCHAR(255)   NOT NULL
+        CHECK (status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED', 'CANCELED', 'REFUNDED')),
+    payment_method     VARCHAR(255)   NOT NULL
+        CHECK (payment_method IN ('CREDIT_CARD', 'PAYPAL', 'PIX')),
+    currency           VARCHAR(255)   NOT NULL,
+    user_id            UUID           NOT NULL REFERENCES users (id),
+    description        VARCHAR(255),
+    external_reference VARCHAR(255),
+    created_at         TIMESTAMP(6)   NOT NULL,
+    updated_at         TIMESTAMP(6)   NOT NULL,
+    paid_at            TIMESTAMP(6),
+    canceled_at        TIMESTAMP(6),
+    refunded_at        TIMESTAMP(6),
+    error_message      VARCHAR(255)
+);
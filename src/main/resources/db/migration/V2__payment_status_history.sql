@@ -0,0 +1,12 @@
+CREATE TABLE payment_status_history (
+    id          BIGINT       GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    payment_id  UUID         NOT NULL,
+    from_status VARCHAR(255),
+    to_status   VARCHAR(255) NOT NULL,
+    actor       VARCHAR(255) NOT NULL,
+    source      VARCHAR(255) NOT NULL,
+    occurred_at TIMESTAMP(6) NOT NULL,
+    recorded_at TIMESTAMP(6) NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_payment_status_history_payment_id ON payment_status_history (payment_id, occurred_at);
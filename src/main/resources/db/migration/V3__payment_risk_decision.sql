@@ -0,0 +1,3 @@
+ALTER TABLE payments
+    ADD COLUMN risk_decision VARCHAR(255),
+    ADD COLUMN risk_reason   VARCHAR(255);
@@ -0,0 +1,6 @@
+-- Bucket-to-shard directory; only the copy on shard 0 is read
+CREATE TABLE shard_buckets (
+    bucket    INTEGER PRIMARY KEY,
+    shard     INTEGER NOT NULL,
+    migrating BOOLEAN NOT NULL DEFAULT FALSE
+);
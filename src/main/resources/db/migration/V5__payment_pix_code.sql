@@ -0,0 +1,2 @@
+ALTER TABLE payments
+    ADD COLUMN pix_code VARCHAR(512);
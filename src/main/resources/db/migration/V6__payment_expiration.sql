@@ -0,0 +1,19 @@
+ALTER TABLE payments
+    ADD COLUMN expires_at TIMESTAMP(6);
+
+-- The baseline check predates EXPIRED, so it is replaced with one that allows it
+ALTER TABLE payments DROP CONSTRAINT IF EXISTS payments_status_check;
+ALTER TABLE payments ADD CONSTRAINT payments_status_check
+    CHECK (status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED', 'CANCELED', 'REFUNDED', 'EXPIRED'));
+
+-- Only payments that can still be abandoned carry a deadline, so the index stays small
+CREATE INDEX idx_payments_expires_at ON payments (expires_at) WHERE expires_at IS NOT NULL;
+
+-- One row per background job that a single node runs at a time on each shard
+CREATE TABLE scheduler_leases (
+    name       VARCHAR(100) PRIMARY KEY,
+    owner      VARCHAR(255),
+    expires_at TIMESTAMP(6)
+);
+
+INSERT INTO scheduler_leases (name) VALUES ('payment-expiration');
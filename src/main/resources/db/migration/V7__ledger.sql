@@ -0,0 +1,25 @@
+-- Immutable double-entry postings; the two entries of every status change sum to zero
+CREATE TABLE ledger_entries (
+    id          BIGINT         GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    user_id     UUID           NOT NULL,
+    payment_id  UUID           NOT NULL,
+    account     VARCHAR(32)    NOT NULL,
+    currency    VARCHAR(255)   NOT NULL,
+    amount      NUMERIC(38, 2) NOT NULL,
+    from_status VARCHAR(255),
+    to_status   VARCHAR(255)   NOT NULL,
+    created_at  TIMESTAMP(6)   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_ledger_entries_user_id ON ledger_entries (user_id, account, currency);
+
+-- Running totals of the entries, split into stripes so concurrent postings to one account
+-- update different rows; a balance is the sum of its stripes
+CREATE TABLE ledger_balances (
+    user_id  UUID           NOT NULL,
+    account  VARCHAR(32)    NOT NULL,
+    currency VARCHAR(255)   NOT NULL,
+    stripe   SMALLINT       NOT NULL,
+    balance  NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (user_id, account, currency, stripe)
+);
@@ -0,0 +1,10 @@
+-- Emails of all users across shards; only the copy on shard 0 is used. Rows without a user_id
+-- are registrations in progress.
+CREATE TABLE user_emails (
+    email      VARCHAR(255) PRIMARY KEY,
+    user_id    UUID,
+    claimed_at TIMESTAMP(6) NOT NULL DEFAULT now()
+);
+
+-- Databases from before sharding hold every user on shard 0, which this fills the index from
+INSERT INTO user_emails (email, user_id) SELECT email, id FROM users;
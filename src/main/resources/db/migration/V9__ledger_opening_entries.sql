@@ -0,0 +1,39 @@
+-- Opening entries for payments created before the ledger existed. Such a payment either has no
+-- entries yet, or its first entry moves it out of a status it already had (from_status is only
+-- null for entries posted at creation). It is opened in that status: the amount moves from
+-- CLEARING to the account holding the status, mirroring LedgerAccount.holding.
+CREATE TEMP TABLE ledger_opening ON COMMIT DROP AS
+SELECT p.id AS payment_id, p.user_id, UPPER(p.currency) AS currency, p.amount, o.status,
+       CASE o.status
+           WHEN 'PENDING' THEN 'PENDING'
+           WHEN 'PROCESSING' THEN 'PENDING'
+           WHEN 'COMPLETED' THEN 'CAPTURED'
+           WHEN 'REFUNDED' THEN 'REFUNDED'
+           ELSE 'CLEARING'
+       END AS account
+FROM payments p
+LEFT JOIN (
+    SELECT DISTINCT ON (payment_id) payment_id, from_status
+    FROM ledger_entries
+    ORDER BY payment_id, id
+) first_entry ON first_entry.payment_id = p.id
+CROSS JOIN LATERAL (SELECT COALESCE(first_entry.from_status, p.status) AS status) o
+WHERE first_entry.payment_id IS NULL OR first_entry.from_status IS NOT NULL;
+
+DELETE FROM ledger_opening WHERE account = 'CLEARING';
+
+INSERT INTO ledger_entries (user_id, payment_id, account, currency, amount, from_status, to_status)
+SELECT user_id, payment_id, 'CLEARING', currency, -amount, NULL, status FROM ledger_opening
+UNION ALL
+SELECT user_id, payment_id, account, currency, amount, NULL, status FROM ledger_opening;
+
+-- Balances are the sum of their stripes, so the opening amounts can all go to stripe 0
+INSERT INTO ledger_balances (user_id, account, currency, stripe, balance)
+SELECT user_id, account, currency, 0, SUM(amount) FROM (
+    SELECT user_id, 'CLEARING' AS account, currency, -amount AS amount FROM ledger_opening
+    UNION ALL
+    SELECT user_id, account, currency, amount FROM ledger_opening
+) opening
+GROUP BY user_id, account, currency
+ON CONFLICT (user_id, account, currency, stripe)
+DO UPDATE SET balance = ledger_balances.balance + EXCLUDED.balance;
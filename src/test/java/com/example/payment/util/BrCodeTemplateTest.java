@@ -0,0 +1,125 @@
+package com.example.payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BrCodeTemplateTest {
+    private static final UUID PAYMENT_ID = UUID.fromString("123e4567-e89b-42d3-a456-426614174000");
+
+    private final BrCodeTemplate template = new BrCodeTemplate("merchant@example.com", "Loja São João", "São Paulo");
+
+    @Test
+    void referenceCrcMatchesTheCcittFalseCheckValue() {
+        assertThat(referenceCrc("123456789")).isEqualTo(0x29B1);
+    }
+
+    @Test
+    void payloadEndsWithTheCrcOfEverythingBeforeIt() {
+        String payload = template.payload(1234, PAYMENT_ID);
+
+        String body = payload.substring(0, payload.length() - 4);
+        assertThat(body).endsWith("6304");
+        assertThat(payload.substring(payload.length() - 4)).isEqualTo(String.format("%04X", referenceCrc(body)));
+    }
+
+    @Test
+    void crcChangesWithAmountAndPayment() {
+        String payload = template.payload(1234, PAYMENT_ID);
+
+        assertThat(template.payload(1235, PAYMENT_ID)).isNotEqualTo(payload);
+        assertThat(template.payload(1234, UUID.randomUUID())).isNotEqualTo(payload);
+        // The per-thread buffer is reused, so a repeat must not pick up leftovers
+        assertThat(template.payload(1234, PAYMENT_ID)).isEqualTo(payload);
+    }
+
+    @Test
+    void fieldLengthsMatchTheirValues() {
+        Map<String, String> fields = parseTlv(template.payload(1234, PAYMENT_ID));
+
+        assertThat(fields.keySet()).containsExactly("00", "01", "26", "52", "53", "54", "58", "59", "60", "62", "63");
+        assertThat(fields.get("00")).isEqualTo("01");
+        assertThat(fields.get("53")).isEqualTo("986");
+        assertThat(fields.get("54")).isEqualTo("12.34");
+        assertThat(fields.get("58")).isEqualTo("BR");
+        assertThat(fields.get("59")).isEqualTo("Loja Sao Joao");
+        assertThat(fields.get("60")).isEqualTo("Sao Paulo");
+
+        Map<String, String> account = parseTlv(fields.get("26"));
+        assertThat(account).containsEntry("00", "br.gov.bcb.pix").containsEntry("01", "merchant@example.com");
+
+        Map<String, String> additionalData = parseTlv(fields.get("62"));
+        assertThat(additionalData).containsOnlyKeys("05");
+        assertThat(additionalData.get("05"))
+            .hasSize(BrCodeTemplate.TXID_LENGTH)
+            .isEqualTo(BrCodeTemplate.txid(PAYMENT_ID));
+    }
+
+    @Test
+    void amountsAreWrittenWithTwoDecimals() {
+        assertThat(parseTlv(template.payload(1, PAYMENT_ID)).get("54")).isEqualTo("0.01");
+        assertThat(parseTlv(template.payload(100, PAYMENT_ID)).get("54")).isEqualTo("1.00");
+        assertThat(parseTlv(template.payload(123456789, PAYMENT_ID)).get("54")).isEqualTo("1234567.89");
+    }
+
+    @Test
+    void txidIsTheTrailingHexDigitsOfThePaymentId() {
+        String hex = PAYMENT_ID.toString().replace("-", "").toUpperCase();
+
+        assertThat(BrCodeTemplate.txid(PAYMENT_ID)).isEqualTo(hex.substring(32 - BrCodeTemplate.TXID_LENGTH));
+    }
+
+    @Test
+    void longMerchantFieldsAreTruncated() {
+        BrCodeTemplate longNames = new BrCodeTemplate("key", "A".repeat(40), "B".repeat(40));
+
+        Map<String, String> fields = parseTlv(longNames.payload(100, PAYMENT_ID));
+        assertThat(fields.get("59")).hasSize(25);
+        assertThat(fields.get("60")).hasSize(15);
+    }
+
+    @Test
+    void rejectsInvalidAmounts() {
+        assertThatThrownBy(() -> template.payload(0, PAYMENT_ID)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> template.payload(10_000_000_000_00L, PAYMENT_ID))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsMissingPixKey() {
+        assertThatThrownBy(() -> new BrCodeTemplate(" ", "Merchant", "City"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Parses one level of ID/length/value fields, failing on lengths that overrun the input
+    private static Map<String, String> parseTlv(String data) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int position = 0;
+        while (position < data.length()) {
+            String id = data.substring(position, position + 2);
+            int length = Integer.parseInt(data.substring(position + 2, position + 4));
+            assertThat(position + 4 + length).as("end of field %s", id).isLessThanOrEqualTo(data.length());
+            fields.put(id, data.substring(position + 4, position + 4 + length));
+            position += 4 + length;
+        }
+        return fields;
+    }
+
+    // Bit-by-bit CRC-16/CCITT-FALSE, independent of the table-driven implementation
+    private static int referenceCrc(String data) {
+        int crc = 0xFFFF;
+        for (byte b : data.getBytes(StandardCharsets.US_ASCII)) {
+            crc ^= (b & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? ((crc << 1) ^ 0x1021) & 0xFFFF : (crc << 1) & 0xFFFF;
+            }
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvUtilsTest {
+
+    @Test
+    void splitsPlainFields() {
+        assertThat(CsvUtils.parseLine("a,b,c")).containsExactly("a", "b", "c");
+        assertThat(CsvUtils.parseLine("a,,c,")).containsExactly("a", "", "c", "");
+        assertThat(CsvUtils.parseLine("")).containsExactly("");
+    }
+
+    @Test
+    void quotedFieldsMayContainCommasAndDoubledQuotes() {
+        assertThat(CsvUtils.parseLine("\"a,b\",\"say \"\"hi\"\"\",c"))
+            .containsExactly("a,b", "say \"hi\"", "c");
+        assertThat(CsvUtils.parseLine("\"\",\"\"\"\"")).containsExactly("", "\"");
+    }
+
+    @Test
+    void rejectsUnterminatedQuotes() {
+        assertThatThrownBy(() -> CsvUtils.parseLine("a,\"b,c"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Unterminated");
+    }
+
+    @Test
+    void mapsValuesToHeaderWithEmptyAsNull() {
+        Map<String, String> fields = CsvUtils.toMap(new String[]{"email", "amount", "description"}, "a@b.c,10.50,");
+
+        assertThat(fields)
+            .containsEntry("email", "a@b.c")
+            .containsEntry("amount", "10.50")
+            .containsEntry("description", null);
+    }
+
+    @Test
+    void rejectsRowsWithTheWrongColumnCount() {
+        assertThatThrownBy(() -> CsvUtils.toMap(new String[]{"a", "b"}, "1,2,3"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Expected 2 columns but found 3");
+    }
+
+    @Test
+    void appendFieldQuotesAndEscapes() {
+        StringBuilder out = new StringBuilder();
+        CsvUtils.appendField(out, "plain").append(',');
+        CsvUtils.appendField(out, "with \"quotes\", and commas").append(',');
+        CsvUtils.appendField(out, null).append(',');
+        CsvUtils.appendField(out, 42);
+
+        assertThat(out).hasToString("\"plain\",\"with \"\"quotes\"\", and commas\",,\"42\"");
+    }
+
+    @Test
+    void appendedFieldsParseBack() {
+        String value = "\"quoted\", then ,,, \"\"";
+        StringBuilder out = CsvUtils.appendField(new StringBuilder(), value).append(',');
+        CsvUtils.appendField(out, "second");
+
+        assertThat(CsvUtils.parseLine(out.toString())).containsExactly(value, "second");
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FxRateSnapshotTest {
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+
+    private final FxRateSnapshot snapshot = FxRateSnapshot.builder("usd")
+        .rate(MONDAY, "BRL", 5.0)
+        .rate(MONDAY, "EUR", 0.9)
+        .rate(MONDAY.plusDays(3), "BRL", 5.2)
+        .rate(MONDAY.plusDays(2), "GBP", 0.8)
+        .build();
+
+    @Test
+    void convertsThroughTheBaseCurrency() {
+        assertThat(snapshot.convert(10, "USD", "BRL", MONDAY)).isCloseTo(50.0, within(1e-9));
+        assertThat(snapshot.convert(50, "BRL", "USD", MONDAY)).isCloseTo(10.0, within(1e-9));
+        assertThat(snapshot.convert(50, "BRL", "EUR", MONDAY)).isCloseTo(9.0, within(1e-9));
+    }
+
+    @Test
+    void fillsGapsForwardFromTheLatestQuote() {
+        // BRL is quoted on day 0 and day 3 only
+        assertThat(snapshot.convert(1, "USD", "BRL", MONDAY.plusDays(1))).isEqualTo(5.0);
+        assertThat(snapshot.convert(1, "USD", "BRL", MONDAY.plusDays(2))).isEqualTo(5.0);
+        assertThat(snapshot.convert(1, "USD", "BRL", MONDAY.plusDays(3))).isEqualTo(5.2);
+        assertThat(snapshot.convert(1, "USD", "BRL", MONDAY.plusDays(30))).isEqualTo(5.2);
+        // EUR has no quote after day 0 but stays in force
+        assertThat(snapshot.convert(1, "USD", "EUR", MONDAY.plusDays(3))).isEqualTo(0.9);
+    }
+
+    @Test
+    void datesBeforeTheFirstQuoteAreNaN() {
+        assertThat(snapshot.convert(1, "USD", "BRL", MONDAY.minusDays(1))).isNaN();
+        assertThat(snapshot.convert(1, "USD", "USD", MONDAY.minusDays(1))).isEqualTo(1.0);
+        // GBP is first quoted on day 2, after the table starts
+        assertThat(snapshot.convert(1, "USD", "GBP", MONDAY.plusDays(1))).isNaN();
+        assertThat(snapshot.convert(1, "GBP", "BRL", MONDAY.plusDays(1))).isNaN();
+        assertThat(snapshot.convert(1, "USD", "GBP", MONDAY.plusDays(2))).isEqualTo(0.8);
+    }
+
+    @Test
+    void unknownCurrenciesAreNaN() {
+        assertThat(snapshot.indexOf("JPY")).isEqualTo(-1);
+        assertThat(snapshot.indexOf(null)).isEqualTo(-1);
+        assertThat(snapshot.convert(1, "USD", "JPY", MONDAY)).isNaN();
+    }
+
+    @Test
+    void currencyCodesAreCaseInsensitive() {
+        assertThat(snapshot.getBaseCurrency()).isEqualTo("USD");
+        assertThat(snapshot.indexOf("brl")).isEqualTo(snapshot.indexOf("BRL")).isNotNegative();
+        assertThat(snapshot.currencyCount()).isEqualTo(4);
+        assertThat(snapshot.dayCount()).isEqualTo(3);
+    }
+
+    @Test
+    void primitiveOverloadMatchesTheLookupByName() {
+        int usd = snapshot.indexOf("USD");
+        int brl = snapshot.indexOf("BRL");
+
+        assertThat(snapshot.convert(7, usd, brl, MONDAY.plusDays(3).toEpochDay()))
+            .isEqualTo(snapshot.convert(7, "USD", "BRL", MONDAY.plusDays(3)));
+    }
+
+    @Test
+    void rejectsNonPositiveRates() {
+        assertThatThrownBy(() -> FxRateSnapshot.builder("USD").rate(MONDAY, "BRL", 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FxRateSnapshot.builder("USD").rate(MONDAY, "BRL", Double.NaN))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void countsEventsWithinTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10, 1);
+
+        assertThat(counter.incrementAndSum(1_000)).isEqualTo(1);
+        assertThat(counter.incrementAndSum(1_500)).isEqualTo(2);
+        assertThat(counter.incrementAndSum(9_999)).isEqualTo(3);
+        assertThat(counter.sum(9_999)).isEqualTo(3);
+    }
+
+    @Test
+    void bucketsFallOutOfTheWindowAsTimeMoves() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10, 1);
+        counter.incrementAndSum(1_000);
+        counter.incrementAndSum(2_000);
+        counter.incrementAndSum(2_500);
+
+        // The window covers the current bucket and the nine before it
+        assertThat(counter.sum(10_999)).isEqualTo(3);
+        assertThat(counter.sum(11_000)).isEqualTo(2);
+        assertThat(counter.sum(12_000)).isZero();
+    }
+
+    @Test
+    void reusedBucketIsResetOnRollover() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10, 1);
+        counter.incrementAndSum(1_000);
+        counter.incrementAndSum(1_200);
+
+        // 11_000 lands in the same ring slot as 1_000, one lap later
+        assertThat(counter.incrementAndSum(11_000)).isEqualTo(1);
+        assertThat(counter.incrementAndSum(11_100)).isEqualTo(2);
+    }
+
+    @Test
+    void sumIgnoresBucketsFromTheFuture() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10, 1);
+        counter.incrementAndSum(50_000);
+
+        assertThat(counter.sum(40_000)).isZero();
+    }
+
+    @Test
+    void stripedCounterAddsUpConcurrentIncrements() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 6, 8);
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        counter.incrementAndSum(5_000);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // All increments fall into one bucket that never rolls over, so none are dropped
+        assertThat(counter.sum(5_000)).isEqualTo((long) threads * perThread);
+    }
+
+    @Test
+    void rejectsStripesThatAreNotAPowerOfTwo() {
+        assertThatThrownBy(() -> new SlidingWindowCounter(1_000, 10, 3)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
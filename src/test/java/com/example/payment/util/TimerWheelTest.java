@@ -0,0 +1,106 @@
+package com.example.payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimerWheelTest {
+    private static final long TICK = 1000;
+
+    @Test
+    void firesAtTheFirstTickAtOrAfterTheDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 0);
+        wheel.schedule("a", 2500);
+
+        assertThat(wheel.advance(2999)).isEmpty();
+        assertThat(wheel.advance(3000)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void passedDeadlinesFireOnTheNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 10_000);
+        wheel.schedule("late", 5_000);
+
+        assertThat(wheel.advance(10_999)).isEmpty();
+        assertThat(wheel.advance(11_000)).containsExactly("late");
+    }
+
+    @Test
+    void returnsKeysInDeadlineOrder() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 0);
+        wheel.schedule("c", 30_000);
+        wheel.schedule("a", 10_000);
+        wheel.schedule("b", 20_000);
+
+        assertThat(wheel.advance(60_000)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void cascadesTimersDownFromUpperLevels() {
+        TimerWheel<Long> wheel = new TimerWheel<>(TICK, 0);
+        // One deadline per level: within the first turn, past 64 ticks, past 64^2 and past 64^3
+        List<Long> deadlines = List.of(63L, 64L, 65L, 4_095L, 4_096L, 4_097L, 262_143L, 262_144L, 262_145L);
+        deadlines.forEach(tick -> wheel.schedule(tick, tick * TICK));
+
+        for (long tick : deadlines) {
+            assertThat(wheel.advance((tick - 1) * TICK)).as("before tick %d", tick).isEmpty();
+            assertThat(wheel.advance(tick * TICK)).as("at tick %d", tick).containsExactly(tick);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesWhenAdvancingManyTicksAtOnce() {
+        TimerWheel<Long> wheel = new TimerWheel<>(TICK, 0);
+        wheel.schedule(300_000L, 300_000 * TICK);
+        wheel.schedule(70L, 70 * TICK);
+        wheel.schedule(5_000L, 5_000 * TICK);
+
+        assertThat(wheel.advance(400_000 * TICK)).containsExactly(70L, 5_000L, 300_000L);
+    }
+
+    @Test
+    void deadlinesBeyondTheWheelAreRefiledUntilDue() {
+        long span = 1L << 24;
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 0);
+        wheel.schedule("far", (span + 100) * TICK);
+
+        assertThat(wheel.advance((span + 99) * TICK)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance((span + 100) * TICK)).containsExactly("far");
+    }
+
+    @Test
+    void removedTimersDoNotFire() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 0);
+        wheel.schedule("kept", 5_000);
+        wheel.schedule("canceled", 5_000);
+        wheel.schedule("canceled-upper", 100_000);
+
+        wheel.removeIf(key -> key.startsWith("canceled"));
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(200_000)).containsExactly("kept");
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 0);
+        wheel.schedule("a", 5_000);
+        wheel.schedule("b", 500_000);
+
+        wheel.clear();
+
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(1_000_000)).isEmpty();
+    }
+
+    @Test
+    void rejectsNonPositiveTick() {
+        assertThatThrownBy(() -> new TimerWheel<String>(0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}